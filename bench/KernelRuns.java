@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/*
+ * KernelRuns: the kernels of ScalarKernels or VectorKernels, each bound
+ * to rows of one width, as java.util.function types.  JMH will not run
+ * a benchmark in the default package, and a class in a package cannot
+ * name Kernels, so kernelbench.KernelBench loads this class by name and
+ * times the functions it holds.
+ */
+public class KernelRuns {
+    public final Supplier<double[]> divide;
+    public final Supplier<double[]> sub_scaled;
+    public final IntSupplier        argmin;
+    public final DoubleSupplier     ratio_bound;
+
+    private final int      width;
+    private final double[] row;
+    private final double[] prow;
+    private final double[] b;
+    private final int[]    keep;
+
+    public KernelRuns(String impl, int width)
+    {
+	Kernels k = impl.equals("vector") ? new VectorKernels() : new ScalarKernels();
+
+	this.width = width;
+	row  = new double[width];
+	prow = new double[width];
+	b    = new double[width];
+	keep = new int[width];
+	seed();
+
+	divide      = () -> { k.divide(row, 0, width, 1.0000001); return row; };
+	sub_scaled  = () -> { k.sub_scaled(row, 0, prow, 0, width, 1.0e-7); return row; };
+	argmin      = () -> k.argmin(row, keep, 0, width, -1.0e-9);
+	ratio_bound = () -> k.ratio_bound(b, prow, width, 1.0e-9, 1.0e-9);
+    }
+
+
+    // the same rows every time, since divide and sub_scaled change row
+    // and would otherwise drift toward subnormals over a long run
+    public void seed()
+    {
+	Random r = new Random(width);
+	for (int j=0; j < width; j++) {
+	    row[j]  = r.nextDouble()-0.5;
+	    prow[j] = r.nextDouble()-0.5;
+	    b[j]    = r.nextDouble();
+	    keep[j] = r.nextInt(8) == 0 ? -1 : 1;
+	}
+    }
+}
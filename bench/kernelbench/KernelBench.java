@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+package kernelbench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/*
+ * KernelBench: JMH timings of ScalarKernels against VectorKernels on
+ * rows of the given widths.  Each kernel is run on the same data by
+ * both implementations.  The kernels are in the default package, which
+ * JMH rejects, so they are reached through KernelRuns, loaded by name;
+ * each fork holds one implementation, so the calls stay monomorphic.
+ * The rows are re-seeded before each iteration.  See the README for how
+ * to build and run it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class KernelBench {
+    @Param({"16", "64", "256", "1024", "4096"})
+    public int width;
+
+    @Param({"scalar", "vector"})
+    public String impl;
+
+    private Object             runs        = null;
+    private Supplier<double[]> divide      = null;
+    private Supplier<double[]> sub_scaled  = null;
+    private IntSupplier        argmin      = null;
+    private DoubleSupplier     ratio_bound = null;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws ReflectiveOperationException
+    {
+	Class<?> c = Class.forName("KernelRuns");
+	runs = c.getConstructor(String.class, int.class).newInstance(impl, width);
+	divide      = (Supplier<double[]>) c.getField("divide").get(runs);
+	sub_scaled  = (Supplier<double[]>) c.getField("sub_scaled").get(runs);
+	argmin      = (IntSupplier) c.getField("argmin").get(runs);
+	ratio_bound = (DoubleSupplier) c.getField("ratio_bound").get(runs);
+    }
+
+
+    @Setup(Level.Iteration)
+    public void seed() throws ReflectiveOperationException
+    {
+	runs.getClass().getMethod("seed").invoke(runs);
+    }
+
+
+    @Benchmark
+    public double[] divide()
+    {
+	return divide.get();
+    }
+
+
+    @Benchmark
+    public double[] sub_scaled()
+    {
+	return sub_scaled.get();
+    }
+
+
+    @Benchmark
+    public int argmin()
+    {
+	return argmin.getAsInt();
+    }
+
+
+    @Benchmark
+    public double ratio_bound()
+    {
+	return ratio_bound.getAsDouble();
+    }
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ * Basis: the final basis of a solve, by name, so it can be saved to a
+ * file and given to a later solve of a changed LinearProgram as its
+ * starting basis.  The basic variables are kept as the label of a
+ * column, or as the label of a row for the slack or surplus of that
+ * row, and the nonbasic columns held at their upper bound likewise.
+ * Artificial variables are not kept.
+ *
+ * start() turns the labels back into the start basis that
+ * Simplex.optimize_from() takes, for whatever system it is given: a
+ * label that system does not have is dropped, and a row or column
+ * the basis does not name starts out as usual, nonbasic or with its
+ * own slack basic.
+ *
+ * The file holds one variable per line, after a "basis" line:
+ *
+ *     "x1",column,basic
+ *     "r3",row,basic
+ *     "x5",column,upper
+ */
+public class Basis {
+    public ArrayList<String> basic_rows = new ArrayList<String>();
+    public ArrayList<String> basic_cols = new ArrayList<String>();
+    public ArrayList<String> upper_cols = new ArrayList<String>();
+
+    // how many of the basic variables start() found in its system
+    public int matched = 0;
+
+    public Basis()
+    {
+    }
+
+
+    // the final basis of simplex
+    public Basis(Simplex simplex)
+    {
+	if (simplex.basic_variables == null || simplex.flipped == null) {
+	    return;
+	}
+
+	LinearProgram lp = simplex.system;
+	boolean[] basic = new boolean[lp.cols];
+	for (int i=1; i <= simplex.basic_variables.length; i++) {
+	    int h = simplex.basic_variables[i-1];
+	    if (h < 0) {
+		continue;                       // an artificial
+	    } else if (h <= lp.cols) {
+		basic_cols.add(lp.col_labels[h-1]);
+		basic[h-1] = true;
+	    } else {
+		basic_rows.add(lp.row_labels[simplex.aux_row[h-1]-1]);
+	    }
+	}
+	for (int j=1; j <= lp.cols; j++) {
+	    if (! basic[j-1] && simplex.flipped[j-1]) {
+		upper_cols.add(lp.col_labels[j-1]);
+	    }
+	}
+    }
+
+
+    // the start basis for lp, in the form Simplex.optimize_from() takes:
+    // the slacks first, which are basic already and cost no pivots
+    public int[] start(LinearProgram lp)
+    {
+	HashMap<String,Integer> rows = index(lp.row_labels, lp.rows);
+	HashMap<String,Integer> cols = index(lp.col_labels, lp.cols);
+
+	int[] result = new int[basic_rows.size()+basic_cols.size()];
+	int n = 0;
+	for (String s : basic_rows) {
+	    Integer i = rows.get(s);
+	    if (i != null) {
+		result[n++] = -i;
+	    }
+	}
+	for (String s : basic_cols) {
+	    Integer j = cols.get(s);
+	    if (j != null) {
+		result[n++] = j;
+	    }
+	}
+	matched = n;
+
+	return Arrays.copyOf(result, n);
+    }
+
+
+    // the columns of lp that start at their upper bound
+    public int[] upper(LinearProgram lp)
+    {
+	HashMap<String,Integer> cols = index(lp.col_labels, lp.cols);
+
+	int[] result = new int[upper_cols.size()];
+	int n = 0;
+	for (String s : upper_cols) {
+	    Integer j = cols.get(s);
+	    if (j != null && lp.upper[j-1] != Double.POSITIVE_INFINITY) {
+		result[n++] = j;
+	    }
+	}
+
+	return Arrays.copyOf(result, n);
+    }
+
+
+    // label -> index, from 1; the first of a repeated label wins
+    private static HashMap<String,Integer> index(String[] labels, int n)
+    {
+	HashMap<String,Integer> result = new HashMap<String,Integer>();
+	for (int k=1; k <= n; k++) {
+	    result.putIfAbsent(labels[k-1], k);
+	}
+
+	return result;
+    }
+
+
+    public int size()
+    {
+	return basic_rows.size()+basic_cols.size();
+    }
+
+
+    public void write(PrintStream out)
+    {
+	out.println("basis");
+	for (String s : basic_cols) {
+	    out.println("\""+s+"\",column,basic");
+	}
+	for (String s : basic_rows) {
+	    out.println("\""+s+"\",row,basic");
+	}
+	for (String s : upper_cols) {
+	    out.println("\""+s+"\",column,upper");
+	}
+    }
+
+
+    public void write(File file)
+    {
+	try {
+	    PrintStream out = new PrintStream(file);
+
+	    write(out);
+
+	    out.close();
+	} catch (Exception exception) {
+	    System.err.println(exception);
+	}
+    }
+
+
+    public static Basis read(File file)
+    {
+	Basis r = new Basis();
+	try {
+	    RandomAccessFile raf = new RandomAccessFile(file, "r");
+	    String line = LinearProgram.read_line(raf);
+	    if (line == null || ! line.trim().equalsIgnoreCase("basis")) {
+		System.err.println("Basis: "+file+" is not a basis file.");
+		raf.close();
+		return r;
+	    }
+	    while ((line=LinearProgram.read_line(raf)) != null) {
+		String[] lks = line.split(",");
+		if (lks.length < 3) {
+		    continue;
+		}
+		String label = lks[0].trim();
+		label = label.substring(1, label.length()-1);
+		String kind   = lks[1].trim();
+		String status = lks[2].trim();
+		if (status.equalsIgnoreCase("upper")) {
+		    r.upper_cols.add(label);
+		} else if (kind.equalsIgnoreCase("row")) {
+		    r.basic_rows.add(label);
+		} else {
+		    r.basic_cols.add(label);
+		}
+	    }
+	    raf.close();
+	} catch (Exception exception) {
+	    System.out.println(exception);
+	}
+
+	return r;
+    }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+/*
+ * BlandPricing: the lowest numbered column with a negative reduced cost
+ * enters.  Together with the lowest numbered leaving variable on ratio
+ * ties it cannot cycle, so Simplex falls back on it when it stalls.
+ */
+public class BlandPricing implements Pricing {
+    public String name()
+    {
+	return "bland";
+    }
+
+
+    public void reset(Simplex s)
+    {
+    }
+
+
+    public int select(Simplex s)
+    {
+	for (int i=1; i <= s.augmented_cols; i++) {
+	    if (s.C[i-1] < -s.dual_tolerance && s.eligible(i)) {
+		return i;
+	    }
+	}
+
+	return 0;
+    }
+
+
+    public void update(Simplex s, int pr, int pc)
+    {
+    }
+}
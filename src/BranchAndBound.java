@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * BranchAndBound: solves a linear program some of whose columns must
+ * take whole values (LinearProgram.integer).  The relaxation, without
+ * integrality, is solved first.  If a marked column is fractional at
+ * its answer, v say, the node is split in two, one with x[j] <= floor(v)
+ * and one with x[j] >= ceil(v), and each is solved in turn.  A node
+ * whose relaxation is infeasible, or no better than the best integer
+ * answer so far (the incumbent), is dropped.  When no open node is
+ * left, the incumbent is optimal.
+ *
+ * A child differs from its parent in one bound, so the final basis of
+ * the parent is still dual feasible for it, and the child is solved
+ * from that basis (see Basis), with a few dual simplex pivots, rather
+ * than from scratch.  The bound of a node is the objective of its
+ * parent, which its own cannot beat.
+ *
+ * With cut_rounds, the relaxation is first tightened by rounds of
+ * Gomory cuts (see GomoryCuts), which are kept in every node, so fewer
+ * nodes have to be solved.
+ *
+ * The open nodes wait in one queue, in order of their bound (BEST_BOUND,
+ * which proves optimality in the fewest nodes) or deepest first
+ * (DEPTH_FIRST, which finds an incumbent soonest and keeps the queue
+ * small).  With an executor, a worker per thread of the pool takes
+ * nodes from the queue and puts their children back, and all share the
+ * incumbent; without one the nodes are solved one at a time.  Either
+ * way the answer has the same objective, though with ties the columns
+ * may differ.
+ */
+public class BranchAndBound {
+    public enum Order {
+	BEST_BOUND,
+	DEPTH_FIRST
+    }
+
+    // an open node: the bounds of the columns, and the final basis and
+    // objective of its parent
+    static class Node {
+	double[] lower;
+	double[] upper;
+	Basis    basis;
+	double   bound;
+	int      depth;
+	long     seq;
+    }
+
+    public LinearProgram system      = null;
+    public Simplex       simplex     = null;   // solves the relaxation, and its settings are used for the nodes
+    public ForkJoinPool  executor    = null;   // solve nodes in parallel on this pool
+    public Order         order       = Order.BEST_BOUND;
+    public double        integrality = 1e-6;   // how close to a whole number a value must be
+    public double        gap         = 1e-9;   // a node must beat the incumbent by this, relative
+    public int           max_nodes   = 100000;
+    public int           cut_rounds  = 0;      // rounds of Gomory cuts at the root
+    public int           nodes       = 0;      // nodes taken from the queue, and the relaxation
+    public int           iterations  = 0;      // pivots, over all the nodes
+    public Simplex       incumbent   = null;   // the solve of the best integer answer
+    public double        Z           = 0;
+    public double        bound       = 0;      // no integer answer is better than this
+
+    private boolean minimize = false;
+    private boolean stopped  = false;
+    private int     busy     = 0;              // nodes being solved
+    private long    seq      = 0;
+    private PriorityQueue<Node> open = null;
+
+    public BranchAndBound(Simplex simplex)
+    {
+	this.simplex = simplex;
+	this.system  = simplex.system;
+    }
+
+
+    // solve the relaxation, then branch until no open node is left or
+    // max_nodes have been solved
+    public Simplex.State solve(boolean minimize)
+    {
+	this.minimize = minimize;
+	nodes     = 0;
+	incumbent = null;
+	stopped   = false;
+	busy      = 0;
+	seq       = 0;
+	open      = new PriorityQueue<Node>(comparator());
+
+	// the system is changed by the solve, so keep it as it was
+	LinearProgram original = system.clone();
+	double[] lower = system.lower.clone();
+	double[] upper = system.upper.clone();
+	Simplex.State soln_type = simplex.optimize_system(minimize);
+	nodes      = 1;
+	iterations = simplex.iterations;
+	if (soln_type != Simplex.State.SOLUTION) {
+	    System.out.println("Branch and bound: the relaxation has no solution");
+	    return soln_type;
+	}
+
+	// the cuts tighten every node, so they go in the system the
+	// nodes are made from
+	if (0 < cut_rounds) {
+	    GomoryCuts gomory = new GomoryCuts(simplex);
+	    gomory.max_rounds = cut_rounds;
+	    soln_type = gomory.cut();
+	    iterations = simplex.iterations;
+	    if (soln_type != Simplex.State.SOLUTION) {
+		System.out.println("Branch and bound: the cuts leave no solution");
+		return soln_type;
+	    }
+	    for (RowGeneration.Row cut : gomory.cuts) {
+		original.add_row(false, original.rows, cut.a, cut.b, cut.e, cut.label);
+	    }
+	}
+	system = original;
+
+	Node root = new Node();
+	root.lower = lower;
+	root.upper = upper;
+	branch(root, simplex);
+
+	int threads = (executor == null) ? 1 : executor.getParallelism();
+	if (threads <= 1) {
+	    work();
+	} else {
+	    List<ForkJoinTask<?>> workers = new ArrayList<ForkJoinTask<?>>();
+	    for (int t=1; t <= threads; t++) {
+		workers.add(executor.submit(() -> work()));
+	    }
+	    for (ForkJoinTask<?> w : workers) {
+		w.join();
+	    }
+	}
+
+	// stopped early, the bound is that of the best node left open
+	bound = (incumbent != null) ? Z : minimize ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+	if (stopped) {
+	    for (Node node : open) {
+		bound = (minimize == (node.bound < bound)) ? node.bound : bound;
+	    }
+	    System.err.println("Branch and bound: stopped after "+nodes+" nodes, "+open.size()+" still open");
+	}
+	if (incumbent == null) {
+	    System.out.println("Branch and bound: "+nodes+" nodes, no integer solution");
+	    return Simplex.State.NO_SOLUTION;
+	}
+	System.out.println("Branch and bound: "+nodes+" nodes, Z = "+Z+", bound = "+bound);
+
+	return Simplex.State.SOLUTION;
+    }
+
+
+    // a worker: solve open nodes until none are left and none are being
+    // solved, since those may yet add children
+    private void work()
+    {
+	while (true) {
+	    Node node = null;
+	    synchronized (open) {
+		while (open.isEmpty() && 0 < busy && ! stopped) {
+		    try {
+			open.wait();
+		    } catch (InterruptedException e) {
+			stopped = true;
+		    }
+		}
+		if (open.isEmpty() || stopped) {
+		    open.notifyAll();
+		    return;
+		}
+		if (max_nodes <= nodes) {
+		    stopped = true;
+		    open.notifyAll();
+		    return;
+		}
+		node = open.poll();
+		nodes += 1;
+		busy  += 1;
+	    }
+
+	    try {
+		solve_node(node);
+	    } finally {
+		synchronized (open) {
+		    busy -= 1;
+		    open.notifyAll();
+		}
+	    }
+	}
+    }
+
+
+    // solve a node from its parent's basis, then keep it as the incumbent
+    // or branch on it
+    private void solve_node(Node node)
+    {
+	if (! improves(node.bound)) {
+	    return;
+	}
+
+	LinearProgram lp = system.clone();
+	lp.lower = node.lower;
+	lp.upper = node.upper;
+	Simplex s = new Simplex(lp);
+	s.settings_from(simplex);
+	s.pricing = fresh(simplex.pricing);
+	s.crash   = false;
+	if (executor != null && 1 < executor.getParallelism()) {
+	    // the pool is busy with nodes
+	    s.executor = null;
+	}
+
+	Simplex.State soln_type = s.optimize_from(minimize, node.basis);
+	synchronized (open) {
+	    iterations += s.iterations;
+	}
+	if (soln_type == Simplex.State.SOLUTION && improves(s.Z)) {
+	    branch(node, s);
+	}
+	s.release();
+    }
+
+
+    // keep s as the incumbent if its answer is integral, or else put the
+    // two children of node, split on its most fractional column, in the
+    // queue
+    private void branch(Node node, Simplex s)
+    {
+	int    j    = 0;
+	double most = integrality;
+	for (int k=1; k <= system.cols; k++) {
+	    if (system.integer[k-1]) {
+		double f = Math.abs(s.x[k-1]-Math.rint(s.x[k-1]));
+		if (most < f) {
+		    j    = k;
+		    most = f;
+		}
+	    }
+	}
+
+	if (j == 0) {
+	    // the integer columns are whole to within integrality, so make
+	    // them exactly whole (and 0, not -0) and Z with them
+	    for (int k=1; k <= system.cols; k++) {
+		if (system.integer[k-1]) {
+		    s.x[k-1] = Math.rint(s.x[k-1])+0.0;
+		}
+	    }
+	    s.Z = 0.0;
+	    for (int k=1; k <= s.system.cols; k++) {
+		s.Z += s.system.c[k-1]*s.x[k-1];
+	    }
+	    synchronized (open) {
+		if (improves(s.Z)) {
+		    incumbent = s;
+		    Z         = s.Z;
+		    System.out.println("Branch and bound: incumbent Z = "+Z+" after "+nodes+" nodes");
+		}
+	    }
+	    return;
+	}
+
+	Basis  basis = new Basis(s);
+	double v     = s.x[j-1];
+	Node down = child(node, s, basis);
+	down.upper[j-1] = Math.floor(v);
+	Node up   = child(node, s, basis);
+	up.lower[j-1]   = Math.ceil(v);
+
+	// the side v is nearer is queued last, so depth first takes it first
+	boolean nearer_up = 0.5 < v-Math.floor(v);
+	synchronized (open) {
+	    for (Node c : nearer_up ? new Node[] { down, up } : new Node[] { up, down }) {
+		if (c.lower[j-1] <= c.upper[j-1]) {
+		    c.seq = seq++;
+		    open.add(c);
+		}
+	    }
+	    open.notifyAll();
+	}
+    }
+
+
+    private Node child(Node node, Simplex s, Basis basis)
+    {
+	Node c = new Node();
+	c.lower = node.lower.clone();
+	c.upper = node.upper.clone();
+	c.basis = basis;
+	c.bound = s.Z;
+	c.depth = node.depth+1;
+
+	return c;
+    }
+
+
+    // can a node bounded by z beat the incumbent?
+    private boolean improves(double z)
+    {
+	synchronized (open) {
+	    if (incumbent == null) {
+		return true;
+	    }
+	    double margin = gap*Simplex.max(1.0, Math.abs(Z));
+
+	    return minimize ? z < Z-margin : Z+margin < z;
+	}
+    }
+
+
+    // the next node: best bound first, or deepest first and then the
+    // last queued; ties go to the deeper, then the later node
+    private Comparator<Node> comparator()
+    {
+	Comparator<Node> by_bound = (p, q) -> minimize ? Double.compare(p.bound, q.bound) : Double.compare(q.bound, p.bound);
+	Comparator<Node> by_depth = (p, q) -> Integer.compare(q.depth, p.depth);
+	Comparator<Node> by_seq   = (p, q) -> Long.compare(q.seq, p.seq);
+
+	if (order == Order.DEPTH_FIRST) {
+	    return by_depth.thenComparing(by_seq);
+	}
+
+	return by_bound.thenComparing(by_depth).thenComparing(by_seq);
+    }
+
+
+    // a pricing rule of the same kind, since rules with weights cannot be
+    // shared by nodes solved at once
+    static Pricing fresh(Pricing p)
+    {
+	try {
+	    return p.getClass().getDeclaredConstructor().newInstance();
+	} catch (ReflectiveOperationException e) {
+	    return new DantzigPricing();
+	}
+    }
+}
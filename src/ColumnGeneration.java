@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * ColumnGeneration: solves a linear program with too many columns to
+ * write down.  The restricted master holds the rows and the columns
+ * known so far; after each solve the duals of its rows go to a Pricer,
+ * which searches the columns not yet in the master (by a knapsack for
+ * cutting stock, say, or a shortest path for crew pairing) and returns
+ * those that price out.  They are appended with LinearProgram.add_col
+ * and the master is re-optimized from its last basis, until the Pricer
+ * returns nothing.
+ *
+ * A column a with cost c prices out if its reduced cost c - y*a is
+ * negative when minimizing (positive when maximizing).  Columns the
+ * Pricer returns that do not are dropped, so only columns that improve
+ * the master ever enter it.  The master must be solved with the tableau
+ * engine, since re-optimizing works on the final tableau.
+ */
+public class ColumnGeneration {
+    // the pricing callback: given the duals of the rows of the master,
+    // return the columns that price out, or none when there are none
+    public interface Pricer {
+	public List<Column> price(double[] dual);
+    }
+
+    // a column of the master: its entries in the rows, cost and label
+    public static class Column {
+	public double[] a;
+	public double   c;
+	public String   label;
+
+	public Column(double[] a, double c, String label)
+	{
+	    this.a     = a;
+	    this.c     = c;
+	    this.label = label;
+	}
+    }
+
+    public LinearProgram master  = null;
+    public Simplex       simplex = null;
+    public Pricer        pricer  = null;
+    public int           max_rounds = 1000;
+    public int           max_batch  = 0;       // columns added per round, 0 for all
+    public double        tolerance  = 1e-9;    // a reduced cost must beat this
+    public int           rounds   = 0;
+    public int           added    = 0;         // columns added to the master
+    public int           rejected = 0;         // columns returned but not added
+
+    public ColumnGeneration(Simplex simplex, Pricer pricer)
+    {
+	this.simplex = simplex;
+	this.master  = simplex.system;
+	this.pricer  = pricer;
+    }
+
+
+    // solve the master, then price and re-optimize until no column
+    // prices out or max_rounds is reached
+    public Simplex.State solve(boolean minimize)
+    {
+	rounds   = 0;
+	added    = 0;
+	rejected = 0;
+	Simplex.State soln_type = simplex.optimize_system(minimize);
+	while (soln_type == Simplex.State.SOLUTION && rounds < max_rounds) {
+	    List<Column> batch = improving(pricer.price(simplex.dual), minimize);
+	    if (batch.isEmpty()) {
+		break;
+	    }
+
+	    rounds += 1;
+	    for (Column col : batch) {
+		master.add_col(false, master.cols, col.a, col.c, col.label);
+	    }
+	    added += batch.size();
+	    soln_type = simplex.reoptimize();
+	    System.out.println("Column generation round "+rounds+": "+batch.size()+" columns, Z = "+simplex.Z);
+	}
+
+	System.out.println("Column generation: "+rounds+" rounds, "+added+" columns added, "+rejected+" rejected");
+
+	return soln_type;
+    }
+
+
+    // the columns of cols that price out against the duals of the last
+    // solve, most improving first, at most max_batch of them
+    private List<Column> improving(List<Column> cols, boolean minimize)
+    {
+	List<Column> batch = new ArrayList<Column>();
+	List<Double> gain  = new ArrayList<Double>();
+	if (cols == null) {
+	    return batch;
+	}
+
+	for (Column col : cols) {
+	    if (col.a == null || col.a.length != master.rows) {
+		System.err.println("Column generation: column "+col.label+" has the wrong number of rows, skipped");
+		rejected += 1;
+		continue;
+	    }
+	    double d = reduced_cost(col);
+	    double g = minimize ? -d : d;
+	    if (g <= tolerance) {
+		rejected += 1;
+		continue;
+	    }
+
+	    // insert in order of gain
+	    int k = batch.size();
+	    while (0 < k && gain.get(k-1) < g) {
+		k -= 1;
+	    }
+	    batch.add(k, col);
+	    gain.add(k, g);
+	}
+
+	if (0 < max_batch && max_batch < batch.size()) {
+	    rejected += batch.size()-max_batch;
+	    batch = new ArrayList<Column>(batch.subList(0, max_batch));
+	}
+
+	return batch;
+    }
+
+
+    // c - y*a, with the duals of the last solve
+    public double reduced_cost(Column col)
+    {
+	double d = col.c;
+	for (int i=1; i <= master.rows; i++) {
+	    d -= simplex.dual[i-1]*col.a[i-1];
+	}
+
+	return d;
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.Arrays;
+
+/*
+ * Crossover: from the interior point solution of InteriorPoint to an
+ * optimal basis in a Simplex tableau.  Near the optimum, the variables
+ * of an optimal basis are those whose primal value x_j is large against
+ * its dual slack s_j, and the rest are those with s_j large against x_j.
+ * identify() ranks the variables by x_j/(x_j+s_j), keeping those past
+ * the middle, and Simplex.optimize_from() pivots them in, in that order,
+ * and finishes with a few primal or dual simplex pivots.
+ */
+public class Crossover {
+    public InteriorPoint ipm     = null;
+    public Simplex       simplex = null;
+
+    // the least x_j/(x_j+s_j) of a variable taken to be basic
+    public double threshold = 0.5;
+
+    public Crossover(InteriorPoint ipm, Simplex simplex)
+    {
+	this.ipm     = ipm;
+	this.simplex = simplex;
+    }
+
+
+    // the start basis, in the form Simplex.optimize_from() takes
+    public int[] identify()
+    {
+	LinearProgram lp = ipm.system;
+	int n = ipm.point_x.length;
+
+	// the standard form variables: the columns, then the slack or
+	// surplus of each row that is not an equality
+	int[] var = new int[n];
+	for (int j=1; j <= lp.cols; j++) {
+	    var[j-1] = j;
+	}
+	int k = lp.cols;
+	for (int i=1; i <= lp.rows && k < n; i++) {
+	    if (lp.e[i-1] != LinearProgram.Equality.EQ) {
+		var[k++] = -i;
+	    }
+	}
+
+	Integer[] order = new Integer[n];
+	double[]  score = new double[n];
+	int count = 0;
+	for (int j=0; j < n; j++) {
+	    double x = ipm.point_x[j];
+	    double s = ipm.point_s[j];
+	    score[j] = x/(x+s);
+	    if (threshold <= score[j]) {
+		order[count++] = j;
+	    }
+	}
+	Arrays.sort(order, 0, count, (p, q) -> (score[p] != score[q])
+		? Double.compare(score[q], score[p])
+		: Double.compare(ipm.point_x[q], ipm.point_x[p]));
+
+	// the columns InteriorPoint split in two, to carry no lower
+	// bound, are not columns of the tableau; the slacks of its
+	// bound rows are not either, and install_basis() skips those
+	int[] start = new int[count];
+	int   kept  = 0;
+	for (int j=0; j < count; j++) {
+	    if (var[order[j]] <= simplex.system.cols) {
+		start[kept++] = var[order[j]];
+	    }
+	}
+
+	return Arrays.copyOf(start, kept);
+    }
+
+
+    // solve the system from the basis the interior point solution marks
+    public Simplex.State run(boolean minimize)
+    {
+	int[] start = identify();
+
+	System.out.println("Crossover from "+ipm.iterations+" interior point iterations, "+start.length+" candidates");
+	System.out.println();
+
+	return simplex.optimize_from(minimize, start);
+    }
+}
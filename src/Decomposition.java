@@ -0,0 +1,703 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Decomposition: Dantzig-Wolfe decomposition of a block-angular linear
+ * program, one whose columns fall into blocks that share no rows but a
+ * few linking rows.  Each block k, with its own rows and bounds, is a
+ * problem of its own, and any answer of the whole is a convex
+ * combination of vertices x[k,p] of the blocks.  The master holds the
+ * linking rows and a convexity row per block,
+ *
+ *     sum(A[k]*x[k,p] * l[k,p]) ~ b0      the linking rows, duals pi
+ *     sum(l[k,p]) = 1, for each block      duals mu[k]
+ *
+ * with a column l[k,p] of cost c[k]*x[k,p] for each vertex found so far.
+ * After each solve of the master, every block is solved with the costs
+ * c[k] - pi*A[k], and its vertex comes in as a new column if it prices
+ * out, that is if its objective beats mu[k].  When none does, the master
+ * is optimal for the whole problem, and x is the combination of the
+ * vertices by l.  The blocks are independent, so with an executor they
+ * are solved at the same time, each with its own Simplex, and each from
+ * its last basis.
+ *
+ * The blocks can be given, as the block of each column, or found by
+ * detect() from where the nonzeros of a are.  The master starts with
+ * the vertex of each block for its own costs, which may not meet the
+ * linking rows, so each linking row also gets a column that takes up
+ * its violation at a cost of penalty per unit.  The master is then
+ * always feasible, with duals to price the blocks against.  If such a
+ * column is still used when no block prices out, the penalty is raised
+ * and the master solved again, and if it still is after that, the
+ * linking rows cannot be met.  A block must be bounded, since only its vertices
+ * are generated; if one is not, or if there is only one block, the
+ * whole problem is solved directly instead.
+ */
+public class Decomposition {
+    public LinearProgram system   = null;      // the whole problem
+    public Simplex       settings = null;      // the master and blocks are solved with its settings
+    public ForkJoinPool  executor = null;      // solve the blocks in parallel on this pool
+    public int[]         block    = null;      // the block of each column, 1..blocks
+    public int           blocks   = 0;
+    public boolean[]     linking  = null;      // rows with columns in more than one block
+    public int           max_rounds = 1000;
+    public double        tolerance  = 1e-9;    // a reduced cost must beat this, relative
+    public double        penalty    = 0.0;     // cost of a unit violation of a linking row, 0 to size it from c
+    public int           max_raises = 2;       // times the penalty is raised before giving up
+    public LinearProgram master  = null;
+    public Simplex       simplex = null;       // solves the master
+    public int           rounds     = 0;
+    public int           added      = 0;       // columns added after the first master
+    public int           iterations = 0;       // pivots, in the master and the blocks
+    public double[]      x    = null;          // the answer and the duals of the whole problem
+    public double[]      dual = null;
+    public double        Z    = 0;
+
+    // a block: its columns and rows in the whole problem, the problem
+    // they make, and the last solve of it
+    class Block {
+	int[]         cols;
+	int[]         rows;
+	LinearProgram lp;
+	Basis         basis = null;
+	Simplex.State state = Simplex.State.SOLUTION;
+	double        value = 0;
+	double[]      point = null;
+	double[]      dual  = null;
+	int           iterations = 0;
+    }
+
+    Block[]        parts    = null;
+    List<Integer>  owner    = new ArrayList<Integer>();   // the block of each master column, 0 for a penalty
+    List<double[]> vertices = new ArrayList<double[]>();  // and its vertex
+    boolean        minimize = false;
+
+    public Decomposition(Simplex settings)
+    {
+	this(settings, detect(settings.system));
+    }
+
+
+    public Decomposition(Simplex settings, int[] block)
+    {
+	this.settings = settings;
+	this.system   = settings.system;
+	this.block    = block;
+	for (int j=1; j <= system.cols; j++) {
+	    blocks = Math.max(blocks, block[j-1]);
+	}
+
+	// a row is linking if its nonzeros are in more than one block
+	linking = new boolean[system.rows];
+	double[] row = new double[system.cols];
+	for (int i=1; i <= system.rows; i++) {
+	    system.get_row(i, row);
+	    int k = 0;
+	    for (int j=1; j <= system.cols; j++) {
+		if (row[j-1] != 0.0) {
+		    linking[i-1] = linking[i-1] || (k != 0 && k != block[j-1]);
+		    k = block[j-1];
+		}
+	    }
+	    linking[i-1] = linking[i-1] || k == 0;
+	}
+    }
+
+
+    // Blocks from the sparsity of a: the rows are taken shortest first,
+    // and the columns of each joined in one block, unless that block
+    // would hold more than half of the columns, in which case the row
+    // is left to link the blocks.  Columns in no block row form one
+    // block between them.
+    public static int[] detect(LinearProgram lp)
+    {
+	int n = lp.cols;
+	int[] parent = new int[n+1];
+	int[] size   = new int[n+1];
+	boolean[] has_rows = new boolean[n+1];
+	for (int j=1; j <= n; j++) {
+	    parent[j] = j;
+	    size[j]   = 1;
+	}
+
+	Integer[] order = new Integer[lp.rows];
+	int[] nz = new int[lp.rows];
+	double[] row = new double[n];
+	for (int i=1; i <= lp.rows; i++) {
+	    lp.get_row(i, row);
+	    for (int j=1; j <= n; j++) {
+		nz[i-1] += (row[j-1] != 0.0) ? 1 : 0;
+	    }
+	    order[i-1] = i;
+	}
+	Arrays.sort(order, (p, q) -> Integer.compare(nz[p-1], nz[q-1]));
+
+	int limit = Math.max(1, n/2);
+	for (Integer i : order) {
+	    lp.get_row(i, row);
+	    List<Integer> roots = new ArrayList<Integer>();
+	    int joined = 0;
+	    for (int j=1; j <= n; j++) {
+		int r = (row[j-1] != 0.0) ? find(parent, j) : 0;
+		if (r != 0 && ! roots.contains(r)) {
+		    roots.add(r);
+		    joined += size[r];
+		}
+	    }
+	    if (roots.isEmpty() || limit < joined) {
+		continue;
+	    }
+	    int r0 = roots.get(0);
+	    for (int r : roots) {
+		if (r != r0) {
+		    parent[r] = r0;
+		    size[r0] += size[r];
+		    has_rows[r0] = has_rows[r0] || has_rows[r];
+		}
+	    }
+	    has_rows[r0] = true;
+	}
+
+	// number the blocks in the order of their first column
+	int[] block = new int[n];
+	int[] number = new int[n+1];
+	int blocks = 0;
+	int loose  = 0;
+	for (int j=1; j <= n; j++) {
+	    int r = find(parent, j);
+	    if (! has_rows[r]) {
+		loose = (loose == 0) ? ++blocks : loose;
+		block[j-1] = loose;
+	    } else {
+		number[r] = (number[r] == 0) ? ++blocks : number[r];
+		block[j-1] = number[r];
+	    }
+	}
+
+	return block;
+    }
+
+
+    private static int find(int[] parent, int j)
+    {
+	while (parent[j] != j) {
+	    parent[j] = parent[parent[j]];
+	    j = parent[j];
+	}
+
+	return j;
+    }
+
+
+    // the block of each column, from a file of "label",block lines after
+    // a "blocks" line; a column the file does not name is in block 1
+    public static int[] read(File file, LinearProgram lp)
+    {
+	int[] block = new int[lp.cols];
+	Arrays.fill(block, 1);
+	HashMap<String,Integer> col = new HashMap<String,Integer>();
+	for (int j=1; j <= lp.cols; j++) {
+	    col.put(lp.col_labels[j-1], j);
+	}
+	try {
+	    RandomAccessFile raf = new RandomAccessFile(file, "r");
+	    String line = LinearProgram.read_line(raf);
+	    if (line == null || ! line.trim().equalsIgnoreCase("blocks")) {
+		System.err.println("Decomposition: "+file+" is not a file of blocks.");
+		raf.close();
+		return block;
+	    }
+	    while ((line=LinearProgram.read_line(raf)) != null) {
+		String[] lk = line.split(",");
+		String label = lk[0].trim();
+		label = label.substring(1, label.length()-1);
+		Integer j = col.get(label);
+		if (j == null || lk.length < 2) {
+		    System.err.println("Decomposition: no column "+label+", skipped.");
+		    continue;
+		}
+		block[j-1] = Integer.parseInt(lk[1].trim());
+	    }
+	    raf.close();
+	} catch (Exception exception) {
+	    System.out.println(exception);
+	}
+
+	return block;
+    }
+
+
+    // solve the master and the blocks in turn until no block prices out
+    public Simplex.State solve(boolean minimize)
+    {
+	this.minimize = minimize;
+	rounds     = 0;
+	added      = 0;
+	iterations = 0;
+	if (blocks < 2) {
+	    System.out.println("Decomposition: one block, solved directly");
+	    return direct();
+	}
+	split();
+
+	// the first vertex of each block, for its own costs
+	price(new double[system.rows]);
+	for (int k=1; k <= blocks; k++) {
+	    if (parts[k-1].state == Simplex.State.NO_SOLUTION) {
+		System.out.println("Decomposition: block "+k+" has no solution");
+		return Simplex.State.NO_SOLUTION;
+	    } else if (parts[k-1].state == Simplex.State.UNBOUNDED) {
+		System.out.println("Decomposition: block "+k+" is unbounded, solved directly");
+		return direct();
+	    }
+	}
+	first_master();
+
+	Simplex.State soln_type = simplex.optimize_system(minimize);
+	int raised = 0;
+	boolean converged = false;
+	while (soln_type == Simplex.State.SOLUTION && rounds < max_rounds) {
+	    double[] y = simplex.dual;
+	    price(y);
+
+	    // the vertices that price out, and the Lagrangian bound
+	    int n = 0;
+	    double bound = simplex.Z;
+	    int L = master.rows-blocks;
+	    for (int k=1; k <= blocks; k++) {
+		Block b = parts[k-1];
+		if (b.state == Simplex.State.UNBOUNDED) {
+		    System.out.println("Decomposition: block "+k+" is unbounded, solved directly");
+		    return direct();
+		}
+		double d = b.value-y[L+k-1];
+		double gain = minimize ? -d : d;
+		if (tolerance*(1.0+Math.abs(b.value)) < gain) {
+		    add_column(k, b.point);
+		    n += 1;
+		    bound += d;
+		}
+	    }
+
+	    if (n == 0) {
+		converged = true;
+		if (! violated() || max_raises <= raised) {
+		    break;
+		}
+		converged = false;
+		// the penalty may be too low to make the blocks meet
+		// the linking rows, so raise it and solve again
+		raised += 1;
+		penalty = 1000.0*penalty;
+		for (int q=1; q <= master.cols; q++) {
+		    if (owner.get(q-1) == 0) {
+			master.c[q-1] = minimize ? penalty : -penalty;
+		    }
+		}
+		iterations += simplex.iterations;
+		simplex.release();
+		new_master();
+		soln_type = simplex.optimize_system(minimize);
+		continue;
+	    }
+
+	    rounds += 1;
+	    added  += n;
+	    soln_type = simplex.reoptimize();
+	    System.out.println("Decomposition round "+rounds+": "+n+" columns, Z = "+simplex.Z+", bound = "+bound);
+	}
+	iterations += simplex.iterations;
+	if (soln_type == Simplex.State.SOLUTION && ! converged) {
+	    System.out.println("Decomposition: no convergence in "+rounds+" rounds");
+	    soln_type = Simplex.State.NO_SOLUTION;
+	} else if (soln_type == Simplex.State.SOLUTION && violated()) {
+	    System.out.println("Decomposition: the linking rows cannot be met");
+	    soln_type = Simplex.State.NO_SOLUTION;
+	}
+
+	System.out.println("Decomposition: "+blocks+" blocks, "+(master.rows-blocks)+" linking rows, "+rounds+" rounds, "+master.cols+" columns");
+	if (soln_type == Simplex.State.SOLUTION) {
+	    combine();
+	}
+
+	return soln_type;
+    }
+
+
+    // x, Z and the duals from the master and the last solve of the blocks
+    private void combine()
+    {
+	x    = new double[system.cols];
+	dual = new double[system.rows];
+	Z    = simplex.Z;
+	for (int q=1; q <= master.cols; q++) {
+	    double l = simplex.x[q-1];
+	    if (l != 0.0 && owner.get(q-1) != 0) {
+		int[]    cols = parts[owner.get(q-1)-1].cols;
+		double[] v    = vertices.get(q-1);
+		for (int t=1; t <= cols.length; t++) {
+		    x[cols[t-1]-1] += l*v[t-1];
+		}
+	    }
+	}
+
+	int L = 0;
+	for (int i=1; i <= system.rows; i++) {
+	    if (linking[i-1]) {
+		L += 1;
+		dual[i-1] = simplex.dual[L-1];
+	    }
+	}
+	for (Block b : parts) {
+	    for (int t=1; t <= b.rows.length && b.dual != null; t++) {
+		dual[b.rows[t-1]-1] = b.dual[t-1];
+	    }
+	}
+    }
+
+
+    // solve the whole problem as one
+    private Simplex.State direct()
+    {
+	LinearProgram whole = system.clone();
+	simplex = new Simplex(whole);
+	simplex.settings_from(settings);
+	Simplex.State soln_type = simplex.optimize_system(minimize);
+	iterations += simplex.iterations;
+	x    = simplex.x;
+	dual = simplex.dual;
+	Z    = simplex.Z;
+
+	return soln_type;
+    }
+
+
+    // the problems of the blocks
+    private void split()
+    {
+	List<List<Integer>> cols = new ArrayList<List<Integer>>();
+	List<List<Integer>> rows = new ArrayList<List<Integer>>();
+	for (int k=1; k <= blocks; k++) {
+	    cols.add(new ArrayList<Integer>());
+	    rows.add(new ArrayList<Integer>());
+	}
+	for (int j=1; j <= system.cols; j++) {
+	    cols.get(block[j-1]-1).add(j);
+	}
+	double[] row = new double[system.cols];
+	for (int i=1; i <= system.rows; i++) {
+	    if (! linking[i-1]) {
+		system.get_row(i, row);
+		for (int j=1; j <= system.cols; j++) {
+		    if (row[j-1] != 0.0) {
+			rows.get(block[j-1]-1).add(i);
+			break;
+		    }
+		}
+	    }
+	}
+
+	parts = new Block[blocks];
+	double[] col = new double[system.rows];
+	for (int k=1; k <= blocks; k++) {
+	    Block b = new Block();
+	    b.cols = cols.get(k-1).stream().mapToInt(Integer::intValue).toArray();
+	    b.rows = rows.get(k-1).stream().mapToInt(Integer::intValue).toArray();
+	    b.lp   = new LinearProgram(b.rows.length, b.cols.length);
+	    b.lp.minimize  = minimize;
+	    b.lp.obj_label = system.obj_label;
+	    for (int s=1; s <= b.rows.length; s++) {
+		int i = b.rows[s-1];
+		b.lp.set_b(s, system.get_b(i));
+		b.lp.set_e(s, system.get_e(i));
+		b.lp.row_labels[s-1] = system.row_labels[i-1];
+	    }
+	    for (int t=1; t <= b.cols.length; t++) {
+		int j = b.cols[t-1];
+		system.get_col(j, col);
+		for (int s=1; s <= b.rows.length; s++) {
+		    double a = col[b.rows[s-1]-1];
+		    if (a != 0.0) {
+			b.lp.set_a(s, t, a);
+		    }
+		}
+		b.lp.lower[t-1]      = system.lower[j-1];
+		b.lp.upper[t-1]      = system.upper[j-1];
+		b.lp.col_labels[t-1] = system.col_labels[j-1];
+	    }
+	    parts[k-1] = b;
+	}
+    }
+
+
+    // the master, with the linking rows, the convexity rows, the first
+    // vertex of each block and the penalty columns
+    private void first_master()
+    {
+	int L = 0;
+	int P = 0;
+	for (int i=1; i <= system.rows; i++) {
+	    if (linking[i-1]) {
+		L += 1;
+		P += (system.get_e(i) == LinearProgram.Equality.EQ) ? 2 : 1;
+	    }
+	}
+	master = new LinearProgram(L+blocks, blocks+P);
+	master.minimize  = minimize;
+	master.obj_label = system.obj_label;
+	int s = 0;
+	for (int i=1; i <= system.rows; i++) {
+	    if (linking[i-1]) {
+		s += 1;
+		master.set_b(s, system.get_b(i));
+		master.set_e(s, system.get_e(i));
+		master.row_labels[s-1] = system.row_labels[i-1];
+	    }
+	}
+	for (int k=1; k <= blocks; k++) {
+	    master.set_b(L+k, 1.0);
+	    master.set_e(L+k, LinearProgram.Equality.EQ);
+	    master.row_labels[L+k-1] = "block"+k;
+	}
+
+	double[] a = new double[master.rows];
+	for (int k=1; k <= blocks; k++) {
+	    master.set_c(k, column(k, parts[k-1].point, a));
+	    for (int i=1; i <= master.rows; i++) {
+		if (a[i-1] != 0.0) {
+		    master.set_a(i, k, a[i-1]);
+		}
+	    }
+	    master.col_labels[k-1] = "block"+k+"_"+k;
+	    owner.add(k);
+	    vertices.add(parts[k-1].point.clone());
+	}
+
+	// a <= row is met by taking some off, a >= row by adding some
+	if (penalty <= 0.0) {
+	    double big = 1.0;
+	    for (int j=1; j <= system.cols; j++) {
+		big = Simplex.max(big, Math.abs(system.c[j-1]));
+	    }
+	    for (int k=1; k <= blocks; k++) {
+		big = Simplex.max(big, Math.abs(master.c[k-1]));
+	    }
+	    penalty = 1000.0*big;
+	}
+	int q = blocks;
+	for (int r=1; r <= L; r++) {
+	    LinearProgram.Equality e = master.get_e(r);
+	    for (double sign : new double[] { 1.0, -1.0 }) {
+		if ((sign < 0.0) ? e == LinearProgram.Equality.GE : e == LinearProgram.Equality.LE) {
+		    continue;
+		}
+		q += 1;
+		master.set_a(r, q, sign);
+		master.set_c(q, minimize ? penalty : -penalty);
+		master.col_labels[q-1] = master.row_labels[r-1]+((sign < 0.0) ? "_less" : "_more");
+		owner.add(0);
+		vertices.add(null);
+	    }
+	}
+	new_master();
+    }
+
+
+    // a Simplex for a copy of the master; setup negates rows of its
+    // system in place, so master itself is kept as built for the next
+    // fresh solve
+    private void new_master()
+    {
+	simplex = new Simplex(master.clone());
+	simplex.settings_from(settings);
+	// M is sized from the costs, which the penalties times the
+	// linking coefficients can outweigh, so Big M is not safe here
+	simplex.method = Simplex.Method.TWO_PHASE;
+    }
+
+
+    // is a penalty column still in use?
+    private boolean violated()
+    {
+	for (int q=1; q <= master.cols; q++) {
+	    if (owner.get(q-1) == 0 && settings.primal_tolerance < simplex.x[q-1]) {
+		return true;
+	    }
+	}
+
+	return false;
+    }
+
+
+    // append vertex v of block k to the master, and to the copy the
+    // simplex holds, which reoptimize() brings into the tableau
+    private void add_column(int k, double[] v)
+    {
+	double[] a = new double[master.rows];
+	double   c = column(k, v, a);
+	owner.add(k);
+	vertices.add(v.clone());
+	master.add_col(false, master.cols, a, c, "block"+k+"_"+vertices.size());
+	simplex.system.add_col(false, simplex.system.cols, a.clone(), c, "block"+k+"_"+vertices.size());
+    }
+
+
+    // vertex v of block k as a column a of the master, and its cost
+    private double column(int k, double[] v, double[] a)
+    {
+	Block b = parts[k-1];
+	int L = master.rows-blocks;
+	double[] col = new double[system.rows];
+	double c = 0.0;
+	Arrays.fill(a, 0.0);
+	for (int t=1; t <= b.cols.length; t++) {
+	    int j = b.cols[t-1];
+	    if (v[t-1] == 0.0) {
+		continue;
+	    }
+	    c += system.c[j-1]*v[t-1];
+	    system.get_col(j, col);
+	    int s = 0;
+	    for (int i=1; i <= system.rows; i++) {
+		if (linking[i-1]) {
+		    s += 1;
+		    a[s-1] += col[i-1]*v[t-1];
+		}
+	    }
+	}
+	a[L+k-1] = 1.0;
+
+	return c;
+    }
+
+
+    // solve every block with the costs c - pi*A, pi the duals of the
+    // linking rows among y
+    private void price(double[] y)
+    {
+	double[] pi = new double[system.rows];
+	int s = 0;
+	for (int i=1; i <= system.rows; i++) {
+	    if (linking[i-1]) {
+		s += 1;
+		pi[i-1] = (s <= y.length) ? y[s-1] : 0.0;
+	    }
+	}
+	double[] cost = system.c.clone();
+	system.sub_combination(settings.kernels, cost, pi);
+
+	if (executor != null && 1 < blocks) {
+	    executor.invoke(new Price(cost, 1, blocks));
+	} else {
+	    for (int k=1; k <= blocks; k++) {
+		solve_block(parts[k-1], cost);
+	    }
+	}
+	for (Block b : parts) {
+	    iterations += b.iterations;
+	}
+    }
+
+
+    // the blocks lo..hi, split in halves down to one each
+    private class Price extends RecursiveAction {
+	static final long serialVersionUID = 1L;
+
+	double[] cost;
+	int lo, hi;
+
+	Price(double[] cost, int lo, int hi)
+	{
+	    this.cost = cost;
+	    this.lo   = lo;
+	    this.hi   = hi;
+	}
+
+	protected void compute()
+	{
+	    if (lo == hi) {
+		solve_block(parts[lo-1], cost);
+	    } else {
+		int mid = (lo+hi)/2;
+		invokeAll(new Price(cost, lo, mid), new Price(cost, mid+1, hi));
+	    }
+	}
+    }
+
+
+    // solve block b with the given costs, from its last basis
+    private void solve_block(Block b, double[] cost)
+    {
+	for (int t=1; t <= b.cols.length; t++) {
+	    b.lp.c[t-1] = cost[b.cols[t-1]-1];
+	}
+	b.iterations = 0;
+
+	// with no rows of its own, each column goes to its better bound
+	if (b.rows.length == 0) {
+	    b.point = new double[b.cols.length];
+	    b.value = 0.0;
+	    b.state = Simplex.State.SOLUTION;
+	    for (int t=1; t <= b.cols.length; t++) {
+		double d = minimize ? b.lp.c[t-1] : -b.lp.c[t-1];
+		b.point[t-1] = (d < 0.0) ? b.lp.upper[t-1] : b.lp.lower[t-1];
+		if (Double.isInfinite(b.point[t-1])) {
+		    b.state = Simplex.State.UNBOUNDED;
+		    return;
+		}
+		b.value += b.lp.c[t-1]*b.point[t-1];
+	    }
+	    return;
+	}
+
+	// a copy, since setup negates rows in place
+	Simplex s = new Simplex(b.lp.clone());
+	s.settings_from(settings);
+	s.pricing  = BranchAndBound.fresh(settings.pricing);
+	s.executor = null;
+	s.crash    = false;
+	b.state = (b.basis != null) ? s.optimize_from(minimize, b.basis) : s.optimize_system(minimize);
+	b.iterations = s.iterations;
+	if (b.state == Simplex.State.SOLUTION) {
+	    b.value = s.Z;
+	    b.point = s.x.clone();
+	    b.dual  = s.dual;
+	    b.basis = new Basis(s);
+	}
+	s.release();
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.Arrays;
+
+/*
+ * DevexPricing: Forrest and Goldfarb's approximation to steepest edge.
+ * Each column carries a reference weight w[j], and the column with the
+ * largest C[j]^2/w[j] enters.  The weights start at one for the columns
+ * that are nonbasic at the start (the reference framework) and are
+ * updated from the pivot row, which is all that Devex needs.  They are
+ * reset once they grow too large to be meaningful.
+ */
+public class DevexPricing implements Pricing {
+    public double reset_limit = 1.0e6;
+
+    double[] w   = null;
+    double[] row = null;
+    double[] e   = null;
+
+    public String name()
+    {
+	return "devex";
+    }
+
+
+    public void reset(Simplex s)
+    {
+	w = new double[s.augmented_cols];
+	Arrays.fill(w, 1.0);
+    }
+
+
+    // rows appended since the reset bring slack columns with unit weight
+    private void fit(Simplex s)
+    {
+	if (w == null || w.length != s.augmented_cols) {
+	    int n = (w == null) ? 0 : w.length;
+	    w = (w == null) ? new double[s.augmented_cols] : Arrays.copyOf(w, s.augmented_cols);
+	    for (int j=n; j < s.augmented_cols; j++) {
+		w[j] = 1.0;
+	    }
+	}
+    }
+
+
+    public int select(Simplex s)
+    {
+	fit(s);
+
+	int j = 0;
+	double best = 0.0;
+	for (int i=1; i <= s.augmented_cols; i++) {
+	    double f = s.C[i-1];
+	    if (f < -s.dual_tolerance && s.eligible(i)) {
+		double g = f*f/w[i-1];
+		if (g > best) {
+		    j = i;
+		    best = g;
+		}
+	    }
+	}
+
+	return j;
+    }
+
+
+    public void update(Simplex s, int pr, int pc)
+    {
+	fit(s);
+	int m = s.augmented_rows;
+	int n = s.augmented_cols;
+	if (row == null || row.length != n) {
+	    row = new double[n];
+	}
+	if (e == null || e.length != m) {
+	    e = new double[m];
+	}
+
+	Arrays.fill(e, 0.0);
+	e[pr-1] = 1.0;
+	s.combine_rows(e, row);
+
+	double aq = row[pc-1];
+	double wq = w[pc-1];
+	double big = 0.0;
+	for (int j=1; j <= n; j++) {
+	    double r = row[j-1];
+	    if (j != pc && r != 0.0) {
+		double f = r/aq;
+		w[j-1] = Simplex.max(w[j-1], f*f*wq);
+		big = Simplex.max(big, w[j-1]);
+	    }
+	}
+
+	// the leaving variable becomes nonbasic
+	int h = Math.abs(s.basic_variables[pr-1]);
+	w[h-1] = Simplex.max(wq/(aq*aq), 1.0);
+
+	if (big > reset_limit) {
+	    Arrays.fill(w, 1.0);
+	}
+    }
+}
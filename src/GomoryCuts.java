@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * GomoryCuts: tightens the relaxation of a linear program with integer
+ * columns with Gomory mixed-integer cuts, read from the final tableau.
+ * Every variable t of the tableau is at least zero: a column shifted by
+ * its lower bound (x - lower), or by its upper bound if it is flipped
+ * (upper - x), or a slack or surplus.  The row of a basic t_h is
+ *
+ *     t_h + sum(a[j]*t[j]) = b,  over the nonbasic j
+ *
+ * and if t_h must be a whole number but b is not, with f0 the fraction
+ * of b and f[j] that of a[j], every integer answer satisfies
+ *
+ *     sum(f[j]/f0 * t[j])                 j integer, f[j] <= f0
+ *   + sum((1-f[j])/(1-f0) * t[j])         j integer, f[j] >  f0
+ *   + sum(a[j]/f0 * t[j])                 j continuous, a[j] > 0
+ *   + sum(-a[j]/(1-f0) * t[j])            j continuous, a[j] < 0   >= 1
+ *
+ * while the current answer, with all t[j] at zero, does not.  The cut is
+ * written back in terms of x and appended to the system as a >= row, and
+ * the system is re-optimized from its basis with the dual simplex.
+ *
+ * A slack or surplus is a whole number when its row has whole
+ * coefficients, on integer columns only, and a whole right hand side.
+ * Artificial variables are zero at every answer, so they drop out.
+ * Rows whose fraction is within away of a whole number, and cuts whose
+ * coefficients differ by more than max_ratio, are passed over, since
+ * they are more likely to cut off answers by round-off than to help.
+ */
+public class GomoryCuts {
+    public LinearProgram system  = null;
+    public Simplex       simplex = null;
+    public int           max_rounds = 5;
+    public int           max_cuts   = 0;       // cuts per round, 0 for one per fractional row
+    public double        away       = 0.01;    // the least fraction of b a cut is made from
+    public double        max_ratio  = 1e8;     // the largest ratio of the coefficients of a cut
+    public double        tolerance  = 1e-6;    // how far the answer must be from satisfying a cut
+    public int           rounds = 0;
+    public int           added  = 0;
+    public List<RowGeneration.Row> cuts = new ArrayList<RowGeneration.Row>();
+
+    public GomoryCuts(Simplex simplex)
+    {
+	this.simplex = simplex;
+	this.system  = simplex.system;
+    }
+
+
+    // solve the relaxation, then cut
+    public Simplex.State solve(boolean minimize)
+    {
+	Simplex.State soln_type = simplex.optimize_system(minimize);
+	if (soln_type != Simplex.State.SOLUTION) {
+	    return soln_type;
+	}
+
+	return cut();
+    }
+
+
+    // from the solved tableau, add cuts and re-optimize until there are
+    // none or max_rounds is reached
+    public Simplex.State cut()
+    {
+	rounds = 0;
+	Simplex.State soln_type = Simplex.State.SOLUTION;
+	while (soln_type == Simplex.State.SOLUTION && rounds < max_rounds) {
+	    List<RowGeneration.Row> batch = generate();
+	    if (batch.isEmpty()) {
+		break;
+	    }
+
+	    rounds += 1;
+	    for (RowGeneration.Row row : batch) {
+		row.label = "gomory"+(cuts.size()+1);
+		system.add_row(false, system.rows, row.a, row.b, row.e, row.label);
+		cuts.add(row);
+	    }
+	    added += batch.size();
+	    soln_type = simplex.reoptimize();
+	    System.out.println("Gomory round "+rounds+": "+batch.size()+" cuts, Z = "+simplex.Z);
+	}
+
+	System.out.println("Gomory cuts: "+rounds+" rounds, "+added+" cuts");
+
+	return soln_type;
+    }
+
+
+    // the cuts of the current tableau, from the rows most fractional first
+    public List<RowGeneration.Row> generate()
+    {
+	List<RowGeneration.Row> batch = new ArrayList<RowGeneration.Row>();
+	List<Double>            depth = new ArrayList<Double>();
+	if (simplex.A == null) {
+	    return batch;
+	}
+
+	boolean[] whole = whole_rows();
+	for (int r=1; r <= simplex.augmented_rows; r++) {
+	    int h = simplex.basic_variables[r-1];
+	    if (h < 0 || system.cols < h || ! integer_var(h)) {
+		continue;
+	    }
+	    double b  = simplex.B[r-1];
+	    double f0 = b-Math.floor(b);
+	    if (f0 < away || 1.0-away < f0) {
+		continue;
+	    }
+
+	    RowGeneration.Row cut = cut(r, f0, whole);
+	    if (cut == null) {
+		continue;
+	    }
+
+	    // insert in order of fraction, nearest one half first
+	    double d = Math.min(f0, 1.0-f0);
+	    int k = batch.size();
+	    while (0 < k && depth.get(k-1) < d) {
+		k -= 1;
+	    }
+	    batch.add(k, cut);
+	    depth.add(k, d);
+	}
+
+	if (0 < max_cuts && max_cuts < batch.size()) {
+	    batch = new ArrayList<RowGeneration.Row>(batch.subList(0, max_cuts));
+	}
+
+	return batch;
+    }
+
+
+    // the cut of tableau row r, as pi*x >= pi0 over the columns of the
+    // system, or null if it is unsafe or the answer satisfies it
+    private RowGeneration.Row cut(int r, double f0, boolean[] whole)
+    {
+	double[] pi  = new double[system.cols];
+	double   pi0 = 1.0;
+	double[] row = new double[system.cols];
+	boolean[] basic = new boolean[simplex.augmented_cols];
+	for (int i=1; i <= simplex.augmented_rows; i++) {
+	    basic[Math.abs(simplex.basic_variables[i-1])-1] = true;
+	}
+
+	for (int j=1; j <= simplex.augmented_cols; j++) {
+	    double a = simplex.A.get(r-1, j-1);
+	    if (basic[j-1] || a == 0.0 || simplex.artificial_variables[j-1] < 0) {
+		continue;
+	    }
+
+	    // the coefficient of t[j] in the cut
+	    double g;
+	    boolean integral = (j <= system.cols) ? integer_var(j) : whole[simplex.aux_row[j-1]-1];
+	    if (integral) {
+		double f = a-Math.floor(a);
+		g = (f <= f0) ? f/f0 : (1.0-f)/(1.0-f0);
+	    } else {
+		g = (0.0 < a) ? a/f0 : -a/(1.0-f0);
+	    }
+	    if (g == 0.0) {
+		continue;
+	    }
+
+	    // t[j] in terms of x
+	    if (j <= system.cols) {
+		if (simplex.flipped[j-1]) {
+		    pi[j-1] -= g;
+		    pi0     -= g*system.upper[j-1];
+		} else {
+		    pi[j-1] += g;
+		    pi0     += g*system.lower[j-1];
+		}
+	    } else {
+		int    i = simplex.aux_row[j-1];
+		double s = g/simplex.aux_coef[j-1];
+		system.get_row(i, row);
+		for (int q=1; q <= system.cols; q++) {
+		    pi[q-1] -= s*row[q-1];
+		}
+		pi0 -= s*system.b[i-1];
+	    }
+	}
+
+	// scale the largest coefficient to one, and pass over cuts with
+	// a wide spread or that the answer satisfies
+	double big   = 0.0;
+	double small = Double.POSITIVE_INFINITY;
+	for (int j=1; j <= system.cols; j++) {
+	    if (pi[j-1] != 0.0) {
+		big   = Simplex.max(big, Math.abs(pi[j-1]));
+		small = Math.min(small, Math.abs(pi[j-1]));
+	    }
+	}
+	if (big == 0.0 || max_ratio*small < big) {
+	    return null;
+	}
+	double ax = 0.0;
+	for (int j=1; j <= system.cols; j++) {
+	    pi[j-1] = pi[j-1]/big;
+	    ax += pi[j-1]*simplex.x[j-1];
+	}
+	pi0 = pi0/big;
+	if (pi0-ax <= tolerance*(1.0+Math.abs(pi0))) {
+	    return null;
+	}
+
+	return new RowGeneration.Row(pi, pi0, LinearProgram.Equality.GE, null);
+    }
+
+
+    // must t[j] of structural column j be a whole number?  x[j] must be,
+    // and the bound it is measured from
+    private boolean integer_var(int j)
+    {
+	double bound = simplex.flipped[j-1] ? system.upper[j-1] : system.lower[j-1];
+
+	return system.integer[j-1] && bound == Math.rint(bound);
+    }
+
+
+    // the rows whose slack or surplus must be a whole number
+    private boolean[] whole_rows()
+    {
+	boolean[] whole = new boolean[system.rows];
+	double[]  row   = new double[system.cols];
+	for (int i=1; i <= system.rows; i++) {
+	    whole[i-1] = system.b[i-1] == Math.rint(system.b[i-1]);
+	    system.get_row(i, row);
+	    for (int j=1; j <= system.cols && whole[i-1]; j++) {
+		whole[i-1] = row[j-1] == 0.0 || (system.integer[j-1] && row[j-1] == Math.rint(row[j-1]));
+	    }
+	}
+
+	return whole;
+    }
+}
@@ -0,0 +1,543 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.Arrays;
+
+/*
+ * InteriorPoint: Mehrotra's predictor-corrector primal-dual interior
+ * point method.  The rows are brought to standard form, A x = b with
+ * x >= 0, by adding a slack to each LE row and a surplus to each GE
+ * row.  Each iteration solves the normal equations (A D A') dy = r with
+ * D = X/S, by a dense Cholesky factorization; A itself is kept as
+ * sparse columns taken from the nonzeros of the LinearProgram.
+ *
+ * The iterates stay strictly inside x > 0, s > 0 and converge to an
+ * optimal x and duals y together, so there is no basis; the results
+ * (State, x, Z) are set as by Simplex, and either engine can be used
+ * through a Simplex reference.  A problem with no solution shows up as
+ * the duals growing without bound, an unbounded one as x doing so while
+ * the rows are met.  When x grows before they are, the rows are solved
+ * again without the costs to see whether they can be met at all.
+ */
+public class InteriorPoint extends Simplex {
+    public int    max_iterations = 200;
+    public double tolerance      = 1.0e-8;
+    public double step_fraction  = 0.995;  // of the step to the boundary
+    public double divergence     = 1.0e12; // |x| or |y| beyond this
+
+    // the final point: primal x and dual slacks s of the standard form
+    // (the original columns, then one per LE or GE row), and row duals y
+    public double[] point_x = null;
+    public double[] point_s = null;
+    public double[] y       = null;
+
+    private int        m     = 0;
+    private int        n     = 0;
+    private int[][]    index = null;
+    private double[][] value = null;
+    private double[]   b     = null;
+    private double[]   c     = null;
+    private double[][] L     = null;
+
+    private LinearProgram original = null;  // the system as given, if its bounds became rows
+    private boolean phase_one = false;      // solving without the costs
+
+    public InteriorPoint(LinearProgram s)
+    {
+	super(s);
+    }
+
+
+    public State optimize_system(boolean minimize)
+    {
+	this.minimize = minimize;
+	// the bounds are kept as rows here, on columns shifted to a
+	// lower bound of 0
+	if (system.has_bounds()) {
+	    original = system;
+	    system  = system.bound_rows();
+	}
+	setup_standard_form();
+
+	System.out.println("Setup minimize="+minimize+" (interior point)");
+	System.out.printf("rows = %d, cols = %d\n", m, n);
+	System.out.println();
+
+	State soln_type = interior_point();
+
+	Z = 0;
+	x = new double[system.cols];
+	for (int j=1; j <= system.cols; j++) {
+	    if (soln_type == State.SOLUTION) {
+		x[j-1] = point_x[j-1];
+		Z += system.c[j-1]*x[j-1];
+	    }
+	}
+	if (original != null && soln_type == State.SOLUTION) {
+	    x = original.from_bound_rows(x);
+	    Z = 0;
+	    for (int j=1; j <= original.cols; j++) {
+		Z += original.c[j-1]*x[j-1];
+	    }
+	}
+	dual = null;
+	if (soln_type == State.SOLUTION) {
+	    dual = new double[m];
+	    for (int i=1; i <= m; i++) {
+		dual[i-1] = minimize ? y[i-1] : -y[i-1];
+	    }
+	}
+
+	System.out.println("Optimized");
+	System.out.println("iterations = "+iterations);
+	System.out.println();
+
+	return soln_type;
+    }
+
+
+    // the columns of A, then a slack or surplus column for each
+    // inequality; the costs are those of a minimization
+    private void setup_standard_form()
+    {
+	m = system.rows;
+	n = system.cols;
+	for (int i=1; i <= m; i++) {
+	    if (system.e[i-1] != LinearProgram.Equality.EQ) {
+		n++;
+	    }
+	}
+
+	index = new int[n][];
+	value = new double[n][];
+	b     = new double[m];
+	c     = new double[n];
+
+	double[] col = new double[m];
+	for (int j=1; j <= system.cols; j++) {
+	    if (system.sparse != null) {
+		SparseMatrix s = system.sparse;
+		index[j-1] = Arrays.copyOf(s.index[j-1], s.count[j-1]);
+		value[j-1] = Arrays.copyOf(s.value[j-1], s.count[j-1]);
+	    } else {
+		system.get_col(j, col);
+		int k = 0;
+		for (int i=0; i < m; i++) {
+		    if (col[i] != 0.0) {
+			k++;
+		    }
+		}
+		index[j-1] = new int[k];
+		value[j-1] = new double[k];
+		k = 0;
+		for (int i=0; i < m; i++) {
+		    if (col[i] != 0.0) {
+			index[j-1][k] = i;
+			value[j-1][k] = col[i];
+			k++;
+		    }
+		}
+	    }
+	    c[j-1] = minimize ? system.c[j-1] : -system.c[j-1];
+	}
+
+	int k = system.cols;
+	for (int i=1; i <= m; i++) {
+	    b[i-1] = system.b[i-1];
+	    if (system.e[i-1] != LinearProgram.Equality.EQ) {
+		index[k] = new int[] {i-1};
+		value[k] = new double[] {(system.e[i-1] == LinearProgram.Equality.LE) ? 1.0 : -1.0};
+		k++;
+	    }
+	}
+
+	L = new double[m][];
+	for (int i=0; i < m; i++) {
+	    L[i] = new double[i+1];
+	}
+    }
+
+
+    private State interior_point()
+    {
+	iterations = 0;
+	if (! system.is_valid()) {
+	    System.err.println("No Solution: invalid system");
+	    return State.NO_SOLUTION;
+	}
+
+	double[] x  = new double[n];
+	double[] s  = new double[n];
+	double[] dx = new double[n];
+	double[] ds = new double[n];
+	double[] ax = new double[n];
+	double[] as = new double[n];
+	double[] d  = new double[n];
+	double[] rd = new double[n];
+	double[] rc = new double[n];
+	double[] rp = new double[m];
+	double[] dy = new double[m];
+	double[] ay = new double[m];
+	y = new double[m];
+	point_x = x;
+	point_s = s;
+
+	if (! empty_rows_hold()) {
+	    System.err.println("No Solution: a row with no entries cannot be met");
+	    return State.NO_SOLUTION;
+	}
+	if (! starting_point(x, y, s, d)) {
+	    System.err.println("No Solution: singular system");
+	    return State.NO_SOLUTION;
+	}
+
+	double nb = 1.0+norm(b);
+	double nc = 1.0+norm(c);
+	for ( ; ; iterations++) {
+	    // the residuals rp = b - Ax and rd = c - A'y - s
+	    for (int i=0; i < m; i++) {
+		rp[i] = b[i];
+	    }
+	    for (int j=0; j < n; j++) {
+		for (int k=0; k < index[j].length; k++) {
+		    rp[index[j][k]] -= value[j][k]*x[j];
+		}
+		rd[j] = c[j]-dot_col(j, y)-s[j];
+	    }
+
+	    double cx = 0.0, by = 0.0, mu = 0.0;
+	    for (int j=0; j < n; j++) {
+		cx += c[j]*x[j];
+		mu += x[j]*s[j];
+	    }
+	    for (int i=0; i < m; i++) {
+		by += b[i]*y[i];
+	    }
+	    mu = mu/n;
+
+	    double primal = norm(rp)/nb;
+	    double dual   = norm(rd)/nc;
+	    double gap    = Math.abs(cx-by)/(1.0+Math.abs(cx));
+	    System.out.printf("iteration %d: primal = %.3e dual = %.3e gap = %.3e mu = %.3e\n", iterations, primal, dual, gap, mu);
+
+	    if (primal < tolerance && dual < tolerance && gap < tolerance) {
+		return State.SOLUTION;
+	    } else if (divergence < max_abs(y)) {
+		return State.NO_SOLUTION;
+	    } else if (divergence < max_abs(x)) {
+		// a ray makes it unbounded only if some x meets the rows
+		return (primal < tolerance || (! phase_one && feasible())) ? State.UNBOUNDED : State.NO_SOLUTION;
+	    } else if (max_iterations <= iterations) {
+		System.err.println("No Solution: no convergence after "+iterations+" iterations");
+		return (primal < tolerance) ? State.UNBOUNDED : State.NO_SOLUTION;
+	    }
+
+	    for (int j=0; j < n; j++) {
+		d[j] = x[j]/s[j];
+	    }
+	    factor(d);
+
+	    // predictor: the affine scaling direction
+	    for (int j=0; j < n; j++) {
+		rc[j] = -x[j]*s[j];
+	    }
+	    direction(x, s, d, rp, rd, rc, ax, ay, as);
+	    double ap = max_step(x, ax);
+	    double ad = max_step(s, as);
+
+	    double mu_aff = 0.0;
+	    for (int j=0; j < n; j++) {
+		mu_aff += (x[j]+ap*ax[j])*(s[j]+ad*as[j]);
+	    }
+	    mu_aff = mu_aff/n;
+	    double sigma = Math.pow(mu_aff/mu, 3);
+
+	    // corrector: centering, plus the second order term
+	    for (int j=0; j < n; j++) {
+		rc[j] = -x[j]*s[j]-ax[j]*as[j]+sigma*mu;
+	    }
+	    direction(x, s, d, rp, rd, rc, dx, dy, ds);
+	    ap = Math.min(1.0, step_fraction*max_step(x, dx));
+	    ad = Math.min(1.0, step_fraction*max_step(s, ds));
+
+	    for (int j=0; j < n; j++) {
+		x[j] += ap*dx[j];
+		s[j] += ad*ds[j];
+	    }
+	    for (int i=0; i < m; i++) {
+		y[i] += ad*dy[i];
+	    }
+	}
+    }
+
+
+    // Mehrotra's starting point: the least squares x and the least
+    // norm s, shifted well inside the positive orthant
+    private boolean starting_point(double[] x, double[] y, double[] s, double[] d)
+    {
+	for (int j=0; j < n; j++) {
+	    d[j] = 1.0;
+	}
+	if (! factor(d)) {
+	    return false;
+	}
+
+	double[] w = b.clone();                 // x = A'(AA')^-1 b
+	solve(w);
+	for (int j=0; j < n; j++) {
+	    x[j] = dot_col(j, w);
+	}
+
+	for (int i=0; i < m; i++) {             // y = (AA')^-1 A c
+	    y[i] = 0.0;
+	}
+	for (int j=0; j < n; j++) {
+	    for (int k=0; k < index[j].length; k++) {
+		y[index[j][k]] += value[j][k]*c[j];
+	    }
+	}
+	solve(y);
+	for (int j=0; j < n; j++) {             // s = c - A'y
+	    s[j] = c[j]-dot_col(j, y);
+	}
+
+	double sx = 0.0, ss = 0.0;
+	for (int j=0; j < n; j++) {
+	    sx = Math.min(sx, x[j]);
+	    ss = Math.min(ss, s[j]);
+	}
+	double xs = 0.0, tx = 0.0, ts = 0.0;
+	for (int j=0; j < n; j++) {
+	    x[j] += -1.5*sx;
+	    s[j] += -1.5*ss;
+	    xs += x[j]*s[j];
+	    tx += x[j];
+	    ts += s[j];
+	}
+	for (int j=0; j < n; j++) {
+	    x[j] += (0.0 < ts) ? 0.5*xs/ts : 0.0;
+	    s[j] += (0.0 < tx) ? 0.5*xs/tx : 0.0;
+	    if (x[j] <= 0.0 || s[j] <= 0.0) {
+		x[j] = Math.max(x[j], 1.0);
+		s[j] = Math.max(s[j], 1.0);
+	    }
+	}
+
+	return true;
+    }
+
+
+    // the search direction for the complementarity target rc:
+    //     (A D A') dy = rp + A (D rd - rc/s),
+    //     ds = rd - A'dy,   dx = (rc - x ds)/s
+    private void direction(double[] x, double[] s, double[] d, double[] rp, double[] rd, double[] rc,
+			   double[] dx, double[] dy, double[] ds)
+    {
+	for (int i=0; i < m; i++) {
+	    dy[i] = rp[i];
+	}
+	for (int j=0; j < n; j++) {
+	    double t = d[j]*rd[j]-rc[j]/s[j];
+	    for (int k=0; k < index[j].length; k++) {
+		dy[index[j][k]] += value[j][k]*t;
+	    }
+	}
+	solve(dy);
+
+	for (int j=0; j < n; j++) {
+	    ds[j] = rd[j]-dot_col(j, dy);
+	    dx[j] = (rc[j]-x[j]*ds[j])/s[j];
+	}
+    }
+
+
+    // the largest step t <= 1/step_fraction keeping v + t*dv >= 0
+    private double max_step(double[] v, double[] dv)
+    {
+	double t = 1.0/step_fraction;
+	for (int j=0; j < n; j++) {
+	    if (dv[j] < 0.0) {
+		t = Math.min(t, -v[j]/dv[j]);
+	    }
+	}
+
+	return t;
+    }
+
+
+    // L L' = A D A', in the lower triangle of L.  A pivot that vanishes
+    // (a row dependent on those before it) is made huge, which drops
+    // that row from the solves instead of failing.
+    private boolean factor(double[] d)
+    {
+	for (int i=0; i < m; i++) {
+	    Arrays.fill(L[i], 0.0);
+	}
+	for (int j=0; j < n; j++) {
+	    int[]    r = index[j];
+	    double[] v = value[j];
+	    for (int p=0; p < r.length; p++) {
+		double f = d[j]*v[p];
+		for (int q=0; q <= p; q++) {
+		    L[r[p]][r[q]] += f*v[q];
+		}
+	    }
+	}
+
+	double big = 0.0;
+	for (int i=0; i < m; i++) {
+	    big = Math.max(big, L[i][i]);
+	}
+	// rows that are all empty have a zero diagonal, and take the huge
+	// pivot below like any other dependent row
+	if (! (0.0 <= big) || Double.isInfinite(big)) {
+	    return false;
+	}
+
+	for (int i=0; i < m; i++) {
+	    double[] li = L[i];
+	    for (int j=0; j < i; j++) {
+		double[] lj = L[j];
+		double t = li[j];
+		for (int k=0; k < j; k++) {
+		    t -= li[k]*lj[k];
+		}
+		li[j] = t/lj[j];
+	    }
+	    double t = li[i];
+	    for (int k=0; k < i; k++) {
+		t -= li[k]*li[k];
+	    }
+	    li[i] = (t <= 1.0e-30*big) ? 1.0e64 : Math.sqrt(t);
+	}
+
+	return true;
+    }
+
+
+    // solve L L' v = r, v replaces r
+    private void solve(double[] r)
+    {
+	for (int i=0; i < m; i++) {
+	    double t = r[i];
+	    for (int k=0; k < i; k++) {
+		t -= L[i][k]*r[k];
+	    }
+	    r[i] = t/L[i][i];
+	}
+	for (int i=m-1; 0 <= i; i--) {
+	    double t = r[i]/L[i][i];
+	    r[i] = t;
+	    for (int k=0; k < i; k++) {
+		r[k] -= L[i][k]*t;
+	    }
+	}
+    }
+
+
+    // whether some x >= 0 meets the rows: with no costs the duals stay
+    // bounded, so the iterates either converge or x leaves with the
+    // rows met, unless no x meets them
+    private boolean feasible()
+    {
+	double[] cost = c;
+	double[] px = point_x, ps = point_s, py = y;
+	int it = iterations;
+	System.out.println("x diverges before the rows are met, solving them without the costs");
+	c = new double[n];
+	phase_one = true;
+	State soln_type = interior_point();
+	phase_one = false;
+	c = cost;
+	point_x = px;
+	point_s = ps;
+	y = py;
+	iterations += it;
+
+	return soln_type != State.NO_SOLUTION;
+    }
+
+
+    // A row without entries is met by every x or by none.  When by none,
+    // the iterates drift without telling why, so it is settled here.
+    private boolean empty_rows_hold()
+    {
+	boolean[] used = new boolean[m];
+	for (int j=0; j < system.cols; j++) {
+	    for (int k=0; k < index[j].length; k++) {
+		used[index[j][k]] = true;
+	    }
+	}
+	for (int i=0; i < m; i++) {
+	    double t = tolerance*(1.0+Math.abs(b[i]));
+	    boolean met = (system.e[i] == LinearProgram.Equality.LE) ? -t <= b[i]
+			: (system.e[i] == LinearProgram.Equality.GE) ? b[i] <= t
+			: Math.abs(b[i]) <= t;
+	    if (! used[i] && ! met) {
+		return false;
+	    }
+	}
+
+	return true;
+    }
+
+
+    // column j of A times v
+    private double dot_col(int j, double[] v)
+    {
+	double t = 0.0;
+	for (int k=0; k < index[j].length; k++) {
+	    t += value[j][k]*v[index[j][k]];
+	}
+
+	return t;
+    }
+
+
+    private static double norm(double[] v)
+    {
+	double t = 0.0;
+	for (int i=0; i < v.length; i++) {
+	    t += v[i]*v[i];
+	}
+
+	return Math.sqrt(t);
+    }
+
+
+    private static double max_abs(double[] v)
+    {
+	double t = 0.0;
+	for (int i=0; i < v.length; i++) {
+	    t = Math.max(t, Math.abs(v[i]));
+	}
+
+	return t;
+    }
+}
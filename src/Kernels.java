@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+/*
+ * Kernels: the inner loops of a pivot, over runs of n doubles starting
+ * at an offset into an array.  ScalarKernels is plain Java and always
+ * works; VectorKernels uses the incubating Vector API and is picked up
+ * at startup when it was compiled and the JVM was started with
+ * --add-modules jdk.incubator.vector.  The two give identical results.
+ */
+public abstract class Kernels {
+    private static Kernels best = null;
+
+    public abstract String name();
+
+    // x[xo..xo+n-1] = x/s
+    public abstract void divide(double[] x, int xo, int n, double s);
+
+    // y[yo..yo+n-1] = y - a*x[xo..xo+n-1]
+    public abstract void sub_scaled(double[] y, int yo, double[] x, int xo, int n, double a);
+
+    // the first index j in off..off+n-1 holding the smallest v[j] below
+    // bound with keep[j] > 0, or -1 if there is none
+    public abstract int argmin(double[] v, int[] keep, int off, int n, double bound);
+
+    // the smallest (b[i]+slack)/alpha[i] over i < n with alpha[i] > tol,
+    // or infinity if there is none
+    public abstract double ratio_bound(double[] b, double[] alpha, int n, double tol, double slack);
+
+    // the vector kernels when they can be loaded, the scalar ones if not
+    public static synchronized Kernels get()
+    {
+	if (best == null) {
+	    try {
+		best = (Kernels) Class.forName("VectorKernels").getDeclaredConstructor().newInstance();
+	    } catch (ReflectiveOperationException | LinkageError e) {
+		best = new ScalarKernels();
+	    }
+	}
+
+	return best;
+    }
+}
@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.Arrays;
+
+/*
+ * LUFactor: dense LU factorization, with partial pivoting, of a square
+ * basis matrix.  Holds P*B = L*U, with L unit lower triangular and both
+ * factors packed into lu[][].  ftran solves B*x = v and btran solves
+ * B'*y = v, each in place.
+ *
+ * Basis changes after the factorization are kept in product form as an
+ * eta file, B^-1 = E_k...E_1 (LU)^-1, where each E differs from the
+ * identity only in the pivot column and is stored by its nonzeros.
+ */
+public class LUFactor {
+    public int        n    = 0;
+    public double[][] lu   = null;
+    public int[]      perm = null;
+
+    private double[]  w    = null;
+
+    // the eta file
+    public int        eta_count = 0;
+    public int[]      eta_row   = null;
+    public int[]      eta_nnz   = null;
+    public int[][]    eta_index = null;
+    public double[][] eta_value = null;
+
+    public LUFactor(int n)
+    {
+	this.n = n;
+	lu     = new double[n][n];
+	perm   = new int[n];
+	w      = new double[n];
+
+	eta_row   = new int[16];
+	eta_nnz   = new int[16];
+	eta_index = new int[16][];
+	eta_value = new double[16][];
+    }
+
+
+    // factor the matrix whose j-th column is basis[*][j]; returns
+    // false if the matrix is singular
+    public boolean factor(double[][] basis)
+    {
+	eta_count = 0;
+
+	for (int i=0; i < n; i++) {
+	    for (int j=0; j < n; j++) {
+		lu[i][j] = basis[i][j];
+	    }
+	    perm[i] = i;
+	}
+
+	for (int k=0; k < n; k++) {
+	    // find the largest remaining entry in column k
+	    int p = k;
+	    double e = Math.abs(lu[k][k]);
+	    for (int i=k+1; i < n; i++) {
+		if (Math.abs(lu[i][k]) > e) {
+		    p = i;
+		    e = Math.abs(lu[i][k]);
+		}
+	    }
+	    if (e == 0.0) {
+		return false;
+	    }
+
+	    if (p != k) {
+		double[] t = lu[p]; lu[p] = lu[k]; lu[k] = t;
+		int      q = perm[p]; perm[p] = perm[k]; perm[k] = q;
+	    }
+
+	    double pivot = lu[k][k];
+	    for (int i=k+1; i < n; i++) {
+		double aux = lu[i][k];
+		if (aux == 0.0) {
+		    continue;
+		}
+		aux = aux/pivot;
+		lu[i][k] = aux;
+		for (int j=k+1; j < n; j++) {
+		    lu[i][j] = lu[i][j]-aux*lu[k][j];
+		}
+	    }
+	}
+
+	return true;
+    }
+
+
+    // solve B*x = v, x replaces v
+    public void ftran(double[] v)
+    {
+	for (int i=0; i < n; i++) {
+	    w[i] = v[perm[i]];
+	}
+
+	for (int i=0; i < n; i++) {             // L*z = P*v
+	    double s = w[i];
+	    for (int j=0; j < i; j++) {
+		s -= lu[i][j]*w[j];
+	    }
+	    w[i] = s;
+	}
+
+	for (int i=n-1; 0 <= i; i--) {          // U*x = z
+	    double s = w[i];
+	    for (int j=i+1; j < n; j++) {
+		s -= lu[i][j]*w[j];
+	    }
+	    w[i] = s/lu[i][i];
+	}
+
+	for (int k=0; k < eta_count; k++) {     // x = E_k...E_1*x
+	    int    r = eta_row[k];
+	    double t = w[r];
+	    if (t == 0.0) {
+		continue;
+	    }
+	    w[r] = 0.0;
+	    int[]    index = eta_index[k];
+	    double[] value = eta_value[k];
+	    for (int p=0; p < eta_nnz[k]; p++) {
+		w[index[p]] += value[p]*t;
+	    }
+	}
+
+	for (int i=0; i < n; i++) {
+	    v[i] = w[i];
+	}
+    }
+
+
+    // solve B'*y = v, y replaces v
+    public void btran(double[] v)
+    {
+	for (int i=0; i < n; i++) {
+	    w[i] = v[i];
+	}
+
+	for (int k=eta_count-1; 0 <= k; k--) {  // v = E_1'...E_k'*v
+	    int[]    index = eta_index[k];
+	    double[] value = eta_value[k];
+	    double   t     = 0.0;
+	    for (int p=0; p < eta_nnz[k]; p++) {
+		t += value[p]*w[index[p]];
+	    }
+	    w[eta_row[k]] = t;
+	}
+
+	for (int i=0; i < n; i++) {             // U'*z = v
+	    double s = w[i];
+	    for (int j=0; j < i; j++) {
+		s -= lu[j][i]*w[j];
+	    }
+	    w[i] = s/lu[i][i];
+	}
+
+	for (int i=n-1; 0 <= i; i--) {          // L'*t = z
+	    double s = w[i];
+	    for (int j=i+1; j < n; j++) {
+		s -= lu[j][i]*w[j];
+	    }
+	    w[i] = s;
+	}
+
+	for (int i=0; i < n; i++) {             // y = P'*t
+	    v[perm[i]] = w[i];
+	}
+    }
+
+
+    // record the basis change in which the entering column, alpha = B^-1*a_q,
+    // replaces the basic variable of row r (0-based)
+    public void update(int r, double[] alpha)
+    {
+	if (eta_count == eta_row.length) {
+	    int size = 2*eta_row.length;
+	    eta_row   = Arrays.copyOf(eta_row,   size);
+	    eta_nnz   = Arrays.copyOf(eta_nnz,   size);
+	    eta_index = Arrays.copyOf(eta_index, size);
+	    eta_value = Arrays.copyOf(eta_value, size);
+	}
+
+	int nnz = 0;
+	for (int i=0; i < n; i++) {
+	    if (alpha[i] != 0.0) {
+		nnz++;
+	    }
+	}
+
+	int[]    index = new int[nnz];
+	double[] value = new double[nnz];
+	double   pivot = alpha[r];
+	int p = 0;
+	for (int i=0; i < n; i++) {
+	    if (i == r) {
+		index[p] = i;
+		value[p] = 1.0/pivot;
+		p++;
+	    } else if (alpha[i] != 0.0) {
+		index[p] = i;
+		value[p] = -alpha[i]/pivot;
+		p++;
+	    }
+	}
+
+	eta_row[eta_count]   = r;
+	eta_nnz[eta_count]   = nnz;
+	eta_index[eta_count] = index;
+	eta_value[eta_count] = value;
+	eta_count++;
+    }
+}
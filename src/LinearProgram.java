@@ -28,6 +28,7 @@
  *******************************************************************************/
 
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class LinearProgram {
 	public enum Equality {LE, EQ, GE};
@@ -38,12 +39,17 @@ public class LinearProgram {
 	public int rows = 0;
 	public int cols = 0;
 	public double[][] a = null;
+	public SparseMatrix sparse = null;	// holds A instead of a, if not null
 	public double[]   b = null;
 	public double[]   c = null;
 	public Equality[] e = null;
 	public double[]   x = null;
 	public double     Z = 0;
 
+	public double[]   lower = null;		// bounds on x, 0 and infinity unless
+	public double[]   upper = null;		// the file gives others
+	public boolean[]  integer = null;	// x[j] must be a whole number
+
 	public String[]   row_labels = null;
 	public String[]   col_labels = null;
 	public String     obj_label  = null;
@@ -54,22 +60,38 @@ public class LinearProgram {
 	 */
 
 	public LinearProgram(int rows, int cols)
+	{
+		this(rows, cols, false);
+	}
+
+	
+	// a sparse system keeps only the nonzeros of A, in this.sparse
+	public LinearProgram(int rows, int cols, boolean sparse)
 	{
 		this.rows  = rows;
 		this.cols  = cols;
-		a          = new double[rows][cols];
+		if (sparse) {
+			this.sparse = new SparseMatrix(rows, cols);
+		} else {
+			a       = new double[rows][cols];
+		}
 		b          = new double[rows];
 		c          = new double[cols];
 		e          = new Equality[rows];
 		x          = new double[cols];
 		Z          = 0;
+		lower      = new double[cols];
+		upper      = new double[cols];
+		integer    = new boolean[cols];
 		row_labels = new String[rows];
 		col_labels = new String[cols];
 		
-		for (int i=0; i < rows; i++) {			// rows
+		for (int i=0; i < rows && a != null; i++) {	// rows
 			for (int j=0; j < cols; j++) {		// cols
 				a[i][j] = 0;
 			}
+		}
+		for (int i=0; i < rows; i++) {			// rows
 			b[i]          = 0;
 			e[i]          = Equality.LE;
 			row_labels[i] = null;
@@ -78,6 +100,9 @@ public class LinearProgram {
 		for (int j=0; j < cols; j++) {			// cols
 			c[j]          = 0;
 			x[j]          = 0;
+			lower[j]      = 0;
+			upper[j]      = Double.POSITIVE_INFINITY;
+			integer[j]    = false;
 			col_labels[j] = null;
 		}
 	}
@@ -107,9 +132,13 @@ public class LinearProgram {
 		Z          = 0;
 		row_labels = rlabels;
 		col_labels = clabels;
+		lower      = new double[cols];
+		upper      = new double[cols];
+		integer    = new boolean[cols];
 		
 		for (int j=0; j < cols; j++) {			// cols
 			x[j]          = 0;
+			upper[j]      = Double.POSITIVE_INFINITY;
 		}
 	}
 
@@ -205,6 +234,9 @@ public class LinearProgram {
 	{
 		double result = 0;
 		if (1 <= i && i <= rows && 1 <= j && j <= cols) {
+			if (sparse != null) {
+				return sparse.set(i-1, j-1, elt);
+			}
 			result = a[i-1][j-1];
 			a[i-1][j-1] = elt;
 		}
@@ -217,13 +249,105 @@ public class LinearProgram {
 	{
 		double result = 0;
 		if (1 <= i && i <= rows && 1 <= j && j <= cols) {
-			result = a[i-1][j-1];
+			result = (sparse != null) ? sparse.get(i-1, j-1) : a[i-1][j-1];
+		}
+
+		return result;
+	}
+	
+	
+	// out[0..cols-1] = row i of A
+	public void get_row(int i, double[] out)
+	{
+		if (sparse != null) {
+			sparse.get_row(i-1, out);
+		} else {
+			System.arraycopy(a[i-1], 0, out, 0, cols);
+		}
+	}
+	
+	
+	// out[0..rows-1] = column j of A
+	public void get_col(int j, double[] out)
+	{
+		if (sparse != null) {
+			sparse.get_col(j-1, out);
+		} else {
+			for (int i=1; i <= rows; i++) {
+				out[i-1] = a[i-1][j-1];
+			}
+		}
+	}
+	
+	
+	// row i of A = -row i of A
+	public void negate_row(int i)
+	{
+		if (sparse != null) {
+			sparse.negate_row(i-1);
+		} else {
+			for (int j=1; j <= cols; j++) {
+				a[i-1][j-1] = -a[i-1][j-1];
+			}
+		}
+	}
+	
+	
+	// the largest magnitude of any entry of A
+	public double max_abs_a()
+	{
+		if (sparse != null) {
+			return sparse.max_abs();
+		}
+
+		double result = 0;
+		for (int i=0; i < rows; i++) {
+			for (int j=0; j < cols; j++) {
+				result = Math.max(result, Math.abs(a[i][j]));
+			}
 		}
 
 		return result;
 	}
 	
 	
+	// y = y - v'A, subtracting the rows of A weighted by v[0..rows-1]
+	// in order, skipping those with no weight
+	public void sub_combination(Kernels k, double[] y, double[] v)
+	{
+		if (sparse != null) {
+			sparse.sub_combination(y, v);
+			return;
+		}
+
+		for (int i=0; i < rows; i++) {
+			if (v[i] != 0.0) {
+				k.sub_scaled(y, 0, a[i], 0, cols, v[i]);
+			}
+		}
+	}
+	
+	
+	// the number of nonzero entries in A
+	public long nonzeros()
+	{
+		if (sparse != null) {
+			return sparse.nonzeros();
+		}
+
+		long n = 0;
+		for (int i=0; i < rows; i++) {
+			for (int j=0; j < cols; j++) {
+				if (a[i][j] != 0) {
+					n++;
+				}
+			}
+		}
+
+		return n;
+	}
+	
+	
 	public double set_b(int i, double elt)
 	{
 		double result = 0;
@@ -293,9 +417,125 @@ public class LinearProgram {
 	}
 	
 	
+	// does any column have a bound other than 0 <= x[j] < infinity?
+	public boolean has_bounds()
+	{
+		for (int j=0; j < cols; j++) {
+			if (lower[j] != 0.0 || upper[j] != Double.POSITIVE_INFINITY) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	// must any column take whole values?
+	public boolean has_integers()
+	{
+		for (int j=0; j < cols; j++) {
+			if (integer[j]) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	// a copy with the bounds written as rows after the others, for the
+	// engines whose columns are all x[j] >= 0.  As in the tableau, each
+	// column is shifted by its lower bound, x[j] = lower[j] + x'[j], and
+	// a column with no lower bound is split in two, x[j] = x'[j] - x"[j],
+	// the x" after all the others.  The rows keep their places, so the
+	// duals carry over; from_bound_rows() takes x back.
+	public LinearProgram bound_rows()
+	{
+		int n = 0;
+		int free = 0;
+		for (int j=0; j < cols; j++) {
+			free += (lower[j] == Double.NEGATIVE_INFINITY) ? 1 : 0;
+			n += (upper[j] != Double.POSITIVE_INFINITY) ? 1 : 0;
+		}
+
+		LinearProgram copy = new LinearProgram(rows+n, cols+free, sparse != null);
+		copy.minimize  = minimize;
+		copy.obj_label = obj_label;
+		double[] row = new double[cols];
+		for (int i=1; i <= rows; i++) {
+			get_row(i, row);
+			double shift = 0.0;
+			int k = cols;
+			for (int j=1; j <= cols; j++) {
+				if (row[j-1] == 0.0) {
+					continue;
+				}
+				copy.set_a(i, j, row[j-1]);
+				if (lower[j-1] == Double.NEGATIVE_INFINITY) {
+					k++;
+					copy.set_a(i, k, -row[j-1]);
+				} else {
+					shift += row[j-1]*lower[j-1];
+				}
+			}
+			copy.b[i-1]          = b[i-1]-shift;
+			copy.e[i-1]          = e[i-1];
+			copy.row_labels[i-1] = row_labels[i-1];
+		}
+
+		int i = rows;
+		int k = cols;
+		for (int j=1; j <= cols; j++) {
+			copy.c[j-1]          = c[j-1];
+			copy.col_labels[j-1] = col_labels[j-1];
+			boolean split = (lower[j-1] == Double.NEGATIVE_INFINITY);
+			if (split) {
+				k++;
+				copy.c[k-1]          = -c[j-1];
+				copy.col_labels[k-1] = col_labels[j-1]+"_minus";
+			}
+			if (upper[j-1] != Double.POSITIVE_INFINITY) {
+				i++;
+				copy.set_a(i, j, 1.0);
+				if (split) {
+					copy.set_a(i, k, -1.0);
+				}
+				copy.b[i-1]          = split ? upper[j-1] : upper[j-1]-lower[j-1];
+				copy.e[i-1]          = Equality.LE;
+				copy.row_labels[i-1] = col_labels[j-1]+"_upper";
+			}
+		}
+
+		return copy;
+	}
+
+
+	// x of this problem from a solution of its bound_rows() copy
+	public double[] from_bound_rows(double[] x_b)
+	{
+		double[] x = new double[cols];
+		int k = cols;
+		for (int j=1; j <= cols; j++) {
+			if (lower[j-1] == Double.NEGATIVE_INFINITY) {
+				k++;
+				x[j-1] = x_b[j-1]-x_b[k-1];
+			} else {
+				x[j-1] = lower[j-1]+x_b[j-1];
+			}
+		}
+
+		return x;
+	}
+
+
 	public void add_row(boolean before, int row, double[] a_r, double b_r, Equality e_r, String label)
 	{
-		if (row < 1 || rows < row) {
+		// after row 0 is ahead of the first, so a system with no rows
+		// can still be given some
+		if (row < (before ? 1 : 0) || rows < row) {
+			return;
+		} else if (sparse != null) {
+			add_sparse_row(before ? row-1 : row, a_r, b_r, e_r, label);
 			return;
 		}
 
@@ -328,7 +568,7 @@ public class LinearProgram {
 			// copy everything from row on
 			for (int i=row; i <= rows; i++) {
 				for (int j=1; j <= cols; j++) {
-					new_a[i][j-1] = a[i][j-1];
+					new_a[i][j-1] = a[i-1][j-1];
 				}
 				new_b[i] = b[i-1];
 				new_e[i] = e[i-1];
@@ -358,11 +598,11 @@ public class LinearProgram {
 			// copy everything from row+1 on
 			for (int i=row+1; i <= rows; i++) {
 				for (int j=1; j <= cols; j++) {
-					new_a[i][j-1] = a[i][j-1];
+					new_a[i][j-1] = a[i-1][j-1];
 				}
 				new_b[i] = b[i-1];
 				new_e[i] = e[i-1];
-				new_l[i] = label;
+				new_l[i] = row_labels[i-1];
 			}
 		}
 		
@@ -378,6 +618,9 @@ public class LinearProgram {
 	{
 		if (col < 1 || cols < col) {
 			return;
+		} else if (sparse != null) {
+			add_sparse_col(before ? col-1 : col, a_c, c_c, label);
+			return;
 		}
 
 		double[][] new_a = new double[rows][cols+1];
@@ -443,16 +686,96 @@ public class LinearProgram {
 		a = new_a;
 		c = new_c;
 		col_labels = new_l;
+		insert_bounds(before ? col-1 : col);
 		cols += 1;
 	}
 	
 	
+	// the new row goes in at index i (from 0), moving the rest down
+	private void add_sparse_row(int i, double[] a_r, double b_r, Equality e_r, String label)
+	{
+		sparse.insert_row(i);
+		for (int j=0; j < cols; j++) {
+			sparse.set(i, j, a_r[j]);
+		}
+
+		double[] new_b = new double[rows+1];
+		Equality[] new_e = new Equality[rows+1];
+		String[]   new_l = new String[rows+1];
+		System.arraycopy(b, 0, new_b, 0, i);
+		System.arraycopy(e, 0, new_e, 0, i);
+		System.arraycopy(row_labels, 0, new_l, 0, i);
+		new_b[i] = b_r;
+		new_e[i] = e_r;
+		new_l[i] = label;
+		System.arraycopy(b, i, new_b, i+1, rows-i);
+		System.arraycopy(e, i, new_e, i+1, rows-i);
+		System.arraycopy(row_labels, i, new_l, i+1, rows-i);
+
+		b = new_b;
+		e = new_e;
+		row_labels = new_l;
+		rows += 1;
+	}
+	
+	
+	// the new column goes in at index j (from 0), moving the rest right
+	private void add_sparse_col(int j, double[] a_c, double c_c, String label)
+	{
+		sparse.insert_col(j);
+		for (int i=0; i < rows; i++) {
+			sparse.set(i, j, a_c[i]);
+		}
+
+		double[] new_c = new double[cols+1];
+		String[] new_l = new String[cols+1];
+		System.arraycopy(c, 0, new_c, 0, j);
+		System.arraycopy(col_labels, 0, new_l, 0, j);
+		new_c[j] = c_c;
+		new_l[j] = label;
+		System.arraycopy(c, j, new_c, j+1, cols-j);
+		System.arraycopy(col_labels, j, new_l, j+1, cols-j);
+
+		c = new_c;
+		col_labels = new_l;
+		insert_bounds(j);
+		cols += 1;
+	}
+
+
+	// a new column j (from 0) gets the default bounds and is continuous
+	private void insert_bounds(int j)
+	{
+		double[]  new_lower = new double[cols+1];
+		double[]  new_upper = new double[cols+1];
+		boolean[] new_int   = new boolean[cols+1];
+		System.arraycopy(lower, 0, new_lower, 0, j);
+		System.arraycopy(upper, 0, new_upper, 0, j);
+		System.arraycopy(integer, 0, new_int, 0, j);
+		new_lower[j] = 0.0;
+		new_upper[j] = Double.POSITIVE_INFINITY;
+		new_int[j]   = false;
+		System.arraycopy(lower, j, new_lower, j+1, cols-j);
+		System.arraycopy(upper, j, new_upper, j+1, cols-j);
+		System.arraycopy(integer, j, new_int, j+1, cols-j);
+
+		lower   = new_lower;
+		upper   = new_upper;
+		integer = new_int;
+	}
+	
+	
 	public LinearProgram clone()
 	{
-		LinearProgram copy = new LinearProgram(rows, cols);
+		LinearProgram copy = new LinearProgram(rows, cols, sparse != null);
+		copy.minimize  = minimize;
+		copy.obj_label = obj_label;
+		if (sparse != null) {
+			copy.sparse = sparse.copy();
+		}
  
 		for (int i=0; i < rows; i++) {			// rows
-			for (int j=0; j < cols; j++) {		// cols
+			for (int j=0; j < cols && a != null; j++) {	// cols
 				copy.a[i][j] = a[i][j];
 			}
 			copy.b[i]          = b[i];
@@ -462,6 +785,9 @@ public class LinearProgram {
 
 		for (int j=0; j < cols; j++) {			// cols
 			copy.c[j]          = c[j];
+			copy.lower[j]      = lower[j];
+			copy.upper[j]      = upper[j];
+			copy.integer[j]    = integer[j];
 			copy.col_labels[j] = col_labels[j];
 		}
 
@@ -471,7 +797,7 @@ public class LinearProgram {
 	
 	public boolean is_valid()
 	{
-		return a != null && b != null && c != null && e != null;
+		return (a != null || sparse != null) && b != null && c != null && e != null;
 	}
 	
 	public static String read_line(RandomAccessFile raf) throws Exception
@@ -504,6 +830,12 @@ public class LinearProgram {
 	
 	
 	public static LinearProgram read(File file)
+	{
+		return read(file, false);
+	}
+	
+	
+	public static LinearProgram read(File file, boolean sparse)
 	{
 		LinearProgram r = null;
 		
@@ -520,7 +852,7 @@ public class LinearProgram {
 		    	int rows = Integer.parseInt(size[0]);
 		    	int cols = Integer.parseInt(size[1]);
 		    	
-		    	r = new LinearProgram(rows, cols);
+		    	r = new LinearProgram(rows, cols, sparse);
 		    	r.minimize = minimize;
 
 		    	// read col labels
@@ -538,7 +870,7 @@ public class LinearProgram {
 		    		r.row_labels[i] = laeb[0].substring(1,laeb[0].length()-1);
 		    		for (int j=0; j < cols && j < laeb.length; j++) {
 			    		laeb[j+1] = laeb[j+1].trim();
-		    			r.a[i][j] = Double.parseDouble(laeb[j+1]);
+		    			r.set_a(i+1, j+1, Double.parseDouble(laeb[j+1]));
 		    		}
 		    		laeb[cols+1] = laeb[cols+1].trim();
 		    		char eq = laeb[cols+1].charAt(0);
@@ -556,6 +888,46 @@ public class LinearProgram {
 		    		r.c[j] = Double.parseDouble(Zs[j+1]);
 		    	}
 
+		    	// read the optional bounds, "lower,..." and "upper,...";
+		    	// an empty entry keeps the default, "inf" is infinity.
+		    	// "integer,..." marks the columns that take whole values:
+		    	// "int" (or 1) an integer, "bin" an integer from 0 to 1
+		    	while ((line=read_line(raf)) != null) {
+		    		String[] lu = line.split(",");
+		    		String which = lu[0].trim();
+		    		if (which.equalsIgnoreCase("integer")) {
+		    			for (int j=0; j < cols && (j+1) < lu.length; j++) {
+		    				String v = lu[j+1].trim();
+		    				if (v.equalsIgnoreCase("bin")) {
+		    					r.integer[j] = true;
+		    					r.upper[j]   = Math.min(r.upper[j], 1.0);
+		    				} else if (v.equalsIgnoreCase("int") || v.equals("1")) {
+		    					r.integer[j] = true;
+		    				} else if (v.length() != 0 && ! v.equals("0")) {
+		    					System.err.println("LinearProgram: unknown integer marker \""+v+"\" for "+r.col_labels[j]+".");
+		    				}
+		    			}
+		    			continue;
+		    		}
+		    		double[] bound = which.equalsIgnoreCase("lower") ? r.lower : which.equalsIgnoreCase("upper") ? r.upper : null;
+		    		if (bound == null) {
+		    			System.err.println("LinearProgram: unknown line \""+which+"\" after the objective.");
+		    			continue;
+		    		}
+		    		for (int j=0; j < cols && (j+1) < lu.length; j++) {
+		    			String v = lu[j+1].trim();
+		    			if (v.length() != 0) {
+		    				bound[j] = v.equalsIgnoreCase("inf") ? Double.POSITIVE_INFINITY : Double.parseDouble(v);
+		    			}
+		    		}
+		    	}
+		    	for (int j=0; j < cols; j++) {
+		    		if (Double.isInfinite(r.lower[j])) {
+		    			System.err.println("LinearProgram: the lower bound of "+r.col_labels[j]+" must be finite.");
+		    			r.lower[j] = 0.0;
+		    		}
+		    	}
+
 		    	raf.close();
 		    } catch(Exception exception) {
 		    	System.out.println(exception);
@@ -577,11 +949,13 @@ public class LinearProgram {
 		}
 		out.println();
 
+		double[] row = new double[cols];
 		for (int i=0; i < rows; i++) {
 			out.print("\""+row_labels[i]+"\",");
 			out.print(b[i]+"," + ((e[i] == Equality.LE) ? "<=" : (e[i] == Equality.EQ) ? "==" : ">="));
+			get_row(i+1, row);
 			for (int j=0; j < cols; j++) {
-				out.print(","+a[i][j]);
+				out.print(","+row[j]);
 			}
 			out.println();
 		}
@@ -591,6 +965,26 @@ public class LinearProgram {
 			out.print(","+c[j]);
 		}
 		out.println();
+
+		if (has_bounds()) {
+			out.print("lower");
+			for (int j=0; j < cols; j++) {
+				out.print(","+lower[j]);
+			}
+			out.println();
+			out.print("upper");
+			for (int j=0; j < cols; j++) {
+				out.print(","+(Double.isInfinite(upper[j]) ? "inf" : ""+upper[j]));
+			}
+			out.println();
+		}
+		if (has_integers()) {
+			out.print("integer");
+			for (int j=0; j < cols; j++) {
+				out.print(","+(integer[j] ? "int" : ""));
+			}
+			out.println();
+		}
 	}
 
 
@@ -616,10 +1010,12 @@ public class LinearProgram {
 		}
 		System.out.println();
 
-		for (int i=0; i < a.length; i++) {
+		double[] row = new double[cols];
+		for (int i=0; i < rows; i++) {
 			System.out.printf("%10.10s ", row_labels[i]);
-			for (int j=0; j < a[i].length; j++) {
-				System.out.printf("%10.2f ", a[i][j]);
+			get_row(i+1, row);
+			for (int j=0; j < cols; j++) {
+				System.out.printf("%10.2f ", row[j]);
 			}
 			System.out.print(((e[i] == Equality.LE) ? "<= " : ((e[i] == Equality.EQ) ? "== " : ">= ")));
 			System.out.printf("%10.2f", b[i]);
@@ -632,6 +1028,19 @@ public class LinearProgram {
 		}
 		System.out.printf("== %10s", obj_label);
 		System.out.println();
+
+		if (has_bounds()) {
+			System.out.printf("%10.10s ", "lower");
+			for (int j=0; j < cols; j++) {
+				System.out.printf("%10.2f ", lower[j]);
+			}
+			System.out.println();
+			System.out.printf("%10.10s ", "upper");
+			for (int j=0; j < cols; j++) {
+				System.out.printf("%10.2f ", upper[j]);
+			}
+			System.out.println();
+		}
 	}
 
 	
@@ -640,37 +1049,328 @@ public class LinearProgram {
 		LinearProgram lp = read(new File("windor.csv"));
 		
 		boolean minimize = false;
+		boolean revised  = false;
+		boolean ipm      = false;
+		boolean timed    = false;
+		boolean cross    = false;
+		boolean presolve = false;
+		boolean scale    = false;
+		boolean compare  = false;
+		boolean duals    = false;
+		boolean crash    = false;
+		boolean crash_compare = false;
+		Basis basis = null;
+		File save_basis = null;
+		File lazy = null;
+		boolean sift = false;
+		boolean relax = false;
+		int cut_rounds = 0;
+		boolean decompose = false;
+		File blocks = null;
+		BranchAndBound.Order order = BranchAndBound.Order.BEST_BOUND;
+		Simplex.Method method = Simplex.Method.BIG_M;
+		Pricing pricing = new DantzigPricing();
+		ForkJoinPool executor = null;
+		boolean verbose = true;
+		Kernels kernels = Kernels.get();
+		boolean off_heap = false;
+		File scratch = null;
+		boolean sparse = false;
+		for (int i=0; i < args.length; i++) {
+			sparse = sparse || args[i].equalsIgnoreCase("-sparse");
+		}
 		for (int i=0; i < args.length; i++) {
 			if ((new File(args[i]).exists())) {
-				lp = read(new File(args[i]));
+				lp = read(new File(args[i]), sparse);
 				minimize = lp.minimize;
 			} else if (args[i].equalsIgnoreCase("-min") || args[i].equalsIgnoreCase("-minimize")) {
 				minimize = true;
 			} else if (args[i].equalsIgnoreCase("-max") || args[i].equalsIgnoreCase("-maximize")) {
 				minimize = false;
+			} else if (args[i].equalsIgnoreCase("-revised")) {
+				revised = true;
+			} else if (args[i].equalsIgnoreCase("-ipm")) {
+				ipm = true;
+			} else if (args[i].equalsIgnoreCase("-crossover")) {
+				ipm = true;
+				cross = true;
+			} else if (args[i].equalsIgnoreCase("-presolve")) {
+				presolve = true;
+			} else if (args[i].equalsIgnoreCase("-scale")) {
+				scale = true;
+			} else if (args[i].equalsIgnoreCase("-scale=compare")) {
+				scale = true;
+				compare = true;
+			} else if (args[i].equalsIgnoreCase("-duals")) {
+				duals = true;
+			} else if (args[i].equalsIgnoreCase("-crash")) {
+				crash = true;
+			} else if (args[i].equalsIgnoreCase("-crash=compare")) {
+				crash = true;
+				crash_compare = true;
+			} else if (args[i].toLowerCase().startsWith("-basis=")) {
+				basis = Basis.read(new File(args[i].substring(7)));
+			} else if (args[i].toLowerCase().startsWith("-save-basis=")) {
+				save_basis = new File(args[i].substring(12));
+			} else if (args[i].toLowerCase().startsWith("-lazy=")) {
+				lazy = new File(args[i].substring(6));
+			} else if (args[i].equalsIgnoreCase("-sift")) {
+				sift = true;
+			} else if (args[i].equalsIgnoreCase("-relax")) {
+				relax = true;
+			} else if (args[i].equalsIgnoreCase("-cuts")) {
+				cut_rounds = 5;
+			} else if (args[i].toLowerCase().startsWith("-cuts=")) {
+				cut_rounds = Integer.parseInt(args[i].substring(6));
+			} else if (args[i].equalsIgnoreCase("-decompose")) {
+				decompose = true;
+			} else if (args[i].toLowerCase().startsWith("-decompose=")) {
+				decompose = true;
+				blocks = new File(args[i].substring(11));
+			} else if (args[i].equalsIgnoreCase("-search=best")) {
+				order = BranchAndBound.Order.BEST_BOUND;
+			} else if (args[i].equalsIgnoreCase("-search=depth")) {
+				order = BranchAndBound.Order.DEPTH_FIRST;
+			} else if (args[i].equalsIgnoreCase("-time")) {
+				timed = true;
+			} else if (args[i].equalsIgnoreCase("-two-phase")) {
+				method = Simplex.Method.TWO_PHASE;
+			} else if (args[i].equalsIgnoreCase("-big-m")) {
+				method = Simplex.Method.BIG_M;
+			} else if (args[i].equalsIgnoreCase("-pricing=dantzig")) {
+				pricing = new DantzigPricing();
+			} else if (args[i].equalsIgnoreCase("-pricing=devex")) {
+				pricing = new DevexPricing();
+			} else if (args[i].equalsIgnoreCase("-pricing=steepest")) {
+				pricing = new SteepestEdgePricing();
+			} else if (args[i].equalsIgnoreCase("-pricing=partial")) {
+				pricing = new PartialPricing();
+			} else if (args[i].equalsIgnoreCase("-parallel")) {
+				executor = ForkJoinPool.commonPool();
+			} else if (args[i].toLowerCase().startsWith("-threads=")) {
+				executor = new ForkJoinPool(Integer.parseInt(args[i].substring(9)));
+			} else if (args[i].equalsIgnoreCase("-quiet")) {
+				verbose = false;
+			} else if (args[i].equalsIgnoreCase("-scalar")) {
+				kernels = new ScalarKernels();
+			} else if (args[i].equalsIgnoreCase("-off-heap")) {
+				off_heap = true;
+			} else if (args[i].toLowerCase().startsWith("-mapped=")) {
+				off_heap = true;
+				scratch = new File(args[i].substring(8));
+			} else if (args[i].equalsIgnoreCase("-sparse")) {
+				// already applied when the file was read
 			}
 		}
 		lp.minimize = minimize;
+		if (basis != null && (ipm || revised)) {
+			System.err.println("LinearProgram: a starting basis needs the tableau, ignored.");
+			basis = null;
+		}
+		// lazy rows are appended to the tableau of the model as read
+		if (lazy != null && (ipm || revised)) {
+			System.err.println("LinearProgram: lazy rows need the tableau, ignored.");
+			lazy = null;
+		}
+		if (lazy != null && (presolve || scale || basis != null)) {
+			System.err.println("LinearProgram: lazy rows are added to the model as read, presolve, scaling and the starting basis are ignored.");
+			presolve = false;
+			scale    = false;
+			compare  = false;
+			basis    = null;
+		}
+		// the master of sifting holds a subset of the columns as read
+		if (sift && (ipm || revised || lazy != null)) {
+			System.err.println("LinearProgram: sifting needs the tableau and all the rows, ignored.");
+			sift = false;
+		}
+		if (sift && (presolve || scale || basis != null)) {
+			System.err.println("LinearProgram: sifting works on the model as read, presolve, scaling and the starting basis are ignored.");
+			presolve = false;
+			scale    = false;
+			compare  = false;
+			basis    = null;
+		}
+		// branch and bound solves nodes of the model as read, from the
+		// basis of their parent
+		boolean integral = ! relax && lp.has_integers();
+		if (integral && (ipm || revised || lazy != null || sift)) {
+			System.err.println("LinearProgram: integer columns need the tableau and all the rows and columns, the relaxation is solved.");
+			integral = false;
+		}
+		if (integral && (presolve || scale || basis != null)) {
+			System.err.println("LinearProgram: branch and bound works on the model as read, presolve, scaling and the starting basis are ignored.");
+			presolve = false;
+			scale    = false;
+			compare  = false;
+			basis    = null;
+		}
+		// the blocks are split out of the model as read
+		if (decompose && (ipm || revised || lazy != null || sift || integral)) {
+			System.err.println("LinearProgram: decomposition needs the tableau, all the rows and no integer columns, ignored.");
+			decompose = false;
+		}
+		if (decompose && (presolve || scale || basis != null || save_basis != null)) {
+			System.err.println("LinearProgram: decomposition works on the model as read, presolve, scaling and bases are ignored.");
+			presolve   = false;
+			scale      = false;
+			compare    = false;
+			basis      = null;
+			save_basis = null;
+		}
+		RowGeneration.Pool pool = null;
+		if (lazy != null) {
+			pool = RowGeneration.Pool.read(lazy, lp.cols);
+		}
 		
 		System.out.println(System.getProperty("user.dir"));
 
-		lp.print_system();
-		System.out.println();
+		if (verbose) {
+			lp.print_system();
+			System.out.println();
+		}
 		
-		Simplex simplex = new Simplex(lp);
-		Simplex.State soln = simplex.optimize_system(lp.minimize);
+		long start = System.nanoTime();
+		Presolve reductions = null;
+		LinearProgram model = lp;
+		if (presolve) {
+			reductions = new Presolve(lp);
+			reductions.verbose = verbose;
+			model = reductions.reduce();
+		}
+		Scaling scaling = null;
+		if (scale) {
+			scaling = new Scaling(model);
+			model = scaling.scale();
+		}
+
+		Simplex simplex = ipm ? new InteriorPoint(model) : revised ? new RevisedSimplex(model) : new Simplex(model);
+		simplex.method = method;
+		simplex.pricing = pricing;
+		simplex.executor = executor;
+		simplex.verbose = verbose;
+		simplex.kernels = kernels;
+		simplex.off_heap = off_heap;
+		simplex.scratch = scratch;
+		simplex.crash = crash;
+		if (scaling != null) {
+			simplex.big_m = scaling.big_m();
+		}
+		// the solve changes the signs of some rows, so keep a copy to
+		// solve again without the crash
+		LinearProgram uncrashed = null;
+		if (crash_compare && 0 < model.rows) {
+			uncrashed = model.clone();
+		}
+		Sifting sifting = null;
+		if (sift) {
+			sifting = new Sifting(model);
+			sifting.simplex.settings_from(simplex);
+			simplex = sifting.simplex;
+		}
+		Decomposition split = null;
+		if (decompose) {
+			split = (blocks != null) ? new Decomposition(simplex, Decomposition.read(blocks, model)) : new Decomposition(simplex);
+			split.executor = executor;
+		}
+		BranchAndBound tree = null;
+		if (integral) {
+			tree = new BranchAndBound(simplex);
+			tree.executor = executor;
+			tree.order    = order;
+			tree.cut_rounds = cut_rounds;
+		}
+		Simplex.State soln;
+		if (tree != null) {
+			soln = tree.solve(lp.minimize);
+			if (tree.incumbent != null) {
+				simplex = tree.incumbent;
+			}
+		} else if (split != null) {
+			soln = split.solve(lp.minimize);
+			if (split.simplex != null) {
+				simplex = split.simplex;
+			}
+		} else if (sifting != null) {
+			soln = sifting.solve(lp.minimize);
+		} else if (pool != null) {
+			RowGeneration generation = new RowGeneration(simplex, pool);
+			soln = generation.solve(lp.minimize);
+			simplex = generation.simplex;
+		} else if (reductions != null) {
+			soln = reductions.optimize(simplex, basis);
+		} else if (basis != null) {
+			soln = simplex.optimize_from(lp.minimize, basis);
+		} else {
+			soln = simplex.optimize_system(lp.minimize);
+		}
+		int iterations = (tree != null) ? tree.iterations : (split != null) ? split.iterations : simplex.iterations;
+		int phase1_iterations = simplex.phase1_iterations;
+		int crash_pivots = simplex.crash_pivots;
+		if (cross && soln == Simplex.State.SOLUTION && 0 < model.rows) {
+			Simplex vertex = new Simplex(model);
+			vertex.settings_from(simplex);
+			soln = new Crossover((InteriorPoint) simplex, vertex).run(lp.minimize);
+			simplex = vertex;
+		}
+		if (save_basis != null) {
+			new Basis(simplex).write(save_basis);
+		}
+		if (scaling != null && soln == Simplex.State.SOLUTION) {
+			scaling.unscale(simplex);
+		}
+		if (reductions != null && soln == Simplex.State.SOLUTION) {
+			reductions.postsolve(simplex);
+		}
+		long elapsed = System.nanoTime()-start;
+		simplex.release();
+
+		// solve the unscaled system again, to see what scaling saved
+		if (compare) {
+			LinearProgram plain = scaling.original.clone();
+			Simplex unscaled = ipm ? new InteriorPoint(plain) : revised ? new RevisedSimplex(plain) : new Simplex(plain);
+			unscaled.settings_from(simplex);
+			unscaled.verbose = false;
+			unscaled.optimize_system(lp.minimize);
+			unscaled.release();
+			System.out.println("Scaling: "+iterations+" iterations, "+unscaled.iterations+" without scaling, "+(unscaled.iterations-iterations)+" saved");
+		}
+
+		// solve again from the all slack and artificial basis
+		if (uncrashed != null) {
+			Simplex plain = ipm ? new InteriorPoint(uncrashed) : revised ? new RevisedSimplex(uncrashed) : new Simplex(uncrashed);
+			plain.settings_from(simplex);
+			plain.verbose = false;
+			plain.crash = false;
+			plain.optimize_system(lp.minimize);
+			plain.release();
+			System.out.println("Crash: "+phase1_iterations+" phase 1 iterations after "+crash_pivots+" crash pivots, "
+					   +plain.phase1_iterations+" without the crash ("+iterations+" vs "+plain.iterations+" in all)");
+		}
 		
 		if (soln == Simplex.State.SOLUTION) {
-			System.out.println(lp.obj_label+" = "+simplex.Z);
+			System.out.println(lp.obj_label+" = "+((split != null) ? split.Z : simplex.Z));
+			double[] x = (split != null) ? split.x : (sifting != null) ? sifting.x : simplex.x;
+			double[] y = (split != null) ? split.dual : simplex.dual;
 			System.out.print("x = ");
-			for (int i=0; i < simplex.x.length; i++) {
-				System.out.print(simplex.x[i]+" ");
+			for (int i=0; i < x.length; i++) {
+				System.out.print(x[i]+" ");
 			}
 			System.out.println();
+			if (duals && y != null) {
+				System.out.print("y = ");
+				for (int i=0; i < lp.rows; i++) {
+					System.out.print(y[i]+" ");
+				}
+				System.out.println();
+			}
 		} else if (soln == Simplex.State.NO_SOLUTION) {
 			System.out.println("No Solution");
 		} else if (soln == Simplex.State.UNBOUNDED) {
 			System.out.println("Unbounded Solution");
 		}
+		if (timed) {
+			System.out.printf("time = %.3f ms\n", elapsed/1.0e6);
+		}
 	}
 }
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+ * OffHeapTableau: a Tableau whose entries live outside the Java heap,
+ * either in direct buffers or in a scratch file mapped into memory, so
+ * the size of the tableau is bounded by memory and disk instead of by
+ * the heap.  A buffer holds at most 2GB, so the rows are split into
+ * chunks of chunk_rows rows, each in its own buffer of at most
+ * chunk_bytes, and no row is split across chunks.
+ *
+ * The pivot loops run on the buffers directly, one element at a time;
+ * the Kernels are not used.  Java 17 has no supported way to free a
+ * direct or mapped buffer, so release() drops the buffers for the
+ * garbage collector and deletes the scratch file.
+ */
+public class OffHeapTableau extends Tableau {
+    public static int chunk_bytes = Integer.MAX_VALUE;
+
+    public int chunk_rows = 0;
+
+    private DoubleBuffer[] chunks  = null;
+    private File           dir     = null;
+    private File           file    = null;
+    private FileChannel    channel = null;
+
+    private OffHeapTableau(int rows, int cols, int stride)
+    {
+	super(rows, cols, stride, null);
+    }
+
+
+    // a rows x cols tableau of zeros in direct buffers, or in a scratch
+    // file in dir when dir is not null; null if the space is not there
+    public static OffHeapTableau allocate(int rows, int cols, File dir)
+    {
+	OffHeapTableau t = new OffHeapTableau(rows, cols, cols);
+	t.dir = dir;
+	try {
+	    t.map(rows);
+	} catch (IOException | OutOfMemoryError e) {
+	    System.err.println("Tableau: no room for "+rows+"x"+cols+" off the heap: "+e.getMessage());
+	    t.release();
+	    return null;
+	}
+
+	return t;
+    }
+
+
+    // set up buffers for at least rows rows of stride entries
+    private void map(int rows) throws IOException
+    {
+	chunk_rows = Math.max(1, Math.min(rows, (chunk_bytes/8)/Math.max(stride, 1)));
+	int n = Math.max(1, (rows+chunk_rows-1)/chunk_rows);
+	long bytes = (long) chunk_rows*stride*8;
+
+	chunks = new DoubleBuffer[n];
+	if (dir != null) {
+	    file = File.createTempFile("tableau", ".tmp", dir);
+	    file.deleteOnExit();
+	    channel = new RandomAccessFile(file, "rw").getChannel();
+	}
+	for (int k=0; k < n; k++) {
+	    ByteBuffer b;
+	    if (channel != null) {
+		b = channel.map(FileChannel.MapMode.READ_WRITE, k*bytes, bytes);
+	    } else {
+		b = ByteBuffer.allocateDirect((int) bytes);
+	    }
+	    chunks[k] = b.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+	}
+    }
+
+
+    public void release()
+    {
+	chunks = null;
+	if (channel != null) {
+	    try {
+		channel.close();
+	    } catch (IOException e) {
+		System.err.println("Tableau: "+e.getMessage());
+	    }
+	    channel = null;
+	}
+	if (file != null) {
+	    file.delete();
+	    file = null;
+	}
+    }
+
+
+    public double get(int i, int j)
+    {
+	return chunks[i/chunk_rows].get((i%chunk_rows)*stride+j);
+    }
+
+
+    public void set(int i, int j, double v)
+    {
+	chunks[i/chunk_rows].put((i%chunk_rows)*stride+j, v);
+    }
+
+
+    public void set_row(int i, double[] v, int n)
+    {
+	DoubleBuffer c = chunks[i/chunk_rows];
+	int o = (i%chunk_rows)*stride;
+	for (int j=0; j < cols; j++) {
+	    c.put(o+j, (j < n) ? v[j] : 0.0);
+	}
+    }
+
+
+    public void divide_row(Kernels k, int i, double s)
+    {
+	DoubleBuffer c = chunks[i/chunk_rows];
+	int o = (i%chunk_rows)*stride;
+	for (int j=o; j < o+cols; j++) {
+	    c.put(j, c.get(j)/s);
+	}
+    }
+
+
+    public void sub_row(Kernels k, int i, int r, double f)
+    {
+	DoubleBuffer c = chunks[i/chunk_rows];
+	DoubleBuffer d = chunks[r/chunk_rows];
+	int o = (i%chunk_rows)*stride;
+	int p = (r%chunk_rows)*stride;
+	for (int j=0; j < cols; j++) {
+	    c.put(o+j, c.get(o+j)-f*d.get(p+j));
+	}
+    }
+
+
+    public void sub_row_from(Kernels k, double[] y, int r, double f)
+    {
+	DoubleBuffer d = chunks[r/chunk_rows];
+	int p = (r%chunk_rows)*stride;
+	for (int j=0; j < cols; j++) {
+	    y[j] = y[j]-f*d.get(p+j);
+	}
+    }
+
+
+    // the rows are spread over buffers of chunk_rows, so any size fits
+    public boolean fits(int rows, int cols)
+    {
+	return true;
+    }
+
+
+    public void resize(int rows, int cols)
+    {
+	if (cols <= stride && rows <= chunks.length*chunk_rows) {
+	    for (int i=0; i < rows; i++) {
+		DoubleBuffer c = chunks[i/chunk_rows];
+		int o = (i%chunk_rows)*stride;
+		for (int j=(i < this.rows) ? Math.min(cols, this.cols) : 0; j < stride; j++) {
+		    c.put(o+j, 0.0);
+		}
+	    }
+	    this.rows = rows;
+	    this.cols = cols;
+	    return;
+	}
+
+	// copy into a new, roomier tableau and take over its buffers
+	OffHeapTableau t = new OffHeapTableau(rows, cols, (cols <= stride) ? stride : Math.max(cols, stride+stride/2));
+	t.dir = dir;
+	try {
+	    t.map(rows+rows/2);
+	} catch (IOException e) {
+	    t.release();
+	    throw new IllegalStateException("Tableau: cannot grow to "+rows+"x"+cols+": "+e.getMessage());
+	}
+	int n = Math.min(cols, this.cols);
+	for (int i=0; i < Math.min(rows, this.rows); i++) {
+	    for (int j=0; j < n; j++) {
+		t.set(i, j, get(i, j));
+	    }
+	}
+	release();
+
+	chunks     = t.chunks;
+	file       = t.file;
+	channel    = t.channel;
+	chunk_rows = t.chunk_rows;
+	stride     = t.stride;
+	this.rows  = rows;
+	this.cols  = cols;
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+/*
+ * PartialPricing: scan the columns from where the last scan stopped,
+ * wrapping around, until window candidates with a negative reduced cost
+ * have been found, and choose the most negative of those.  On wide
+ * problems a pivot is chosen after looking at a small part of the row.
+ */
+public class PartialPricing implements Pricing {
+    public int window = 16;
+
+    private int start = 0;
+
+    public PartialPricing()
+    {
+    }
+
+
+    public PartialPricing(int window)
+    {
+	this.window = window;
+    }
+
+
+    public String name()
+    {
+	return "partial";
+    }
+
+
+    public void reset(Simplex s)
+    {
+	start = 0;
+    }
+
+
+    public int select(Simplex s)
+    {
+	int n = s.augmented_cols;
+	if (n <= start) {
+	    start = 0;
+	}
+
+	int j = 0;
+	int found = 0;
+	double e = -s.dual_tolerance;
+	for (int k=0; k < n && found < window; k++) {
+	    int i = (start+k)%n + 1;
+	    double f = s.C[i-1];
+	    if (f < -s.dual_tolerance && s.eligible(i)) {
+		found++;
+		if (f < e) {
+		    j = i;
+		    e = f;
+		}
+	    }
+	    if (found == window) {
+		start = i%n;
+	    }
+	}
+
+	return j;
+    }
+
+
+    public void update(Simplex s, int pr, int pc)
+    {
+    }
+}
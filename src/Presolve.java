@@ -0,0 +1,949 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * Presolve: simple reductions of a LinearProgram ahead of the simplex
+ * method.  It removes empty rows, turns singleton rows into bounds on
+ * their column (or fixes it, for an equality), merges duplicate
+ * (parallel) rows and fixes dominated columns at a bound.  Bound
+ * propagation then drops the rows the bounds make redundant, fixes the
+ * columns of forcing rows, and derives implied bounds, which find
+ * infeasible systems and fixed columns without pivoting.  The
+ * reductions are made on a copy, the original is left untouched.
+ * The bounds of the original are the starting point, and the reduced
+ * system carries the bounds presolve ends with.
+ *
+ * Each reduction is pushed onto a postsolve stack, which postsolve()
+ * unwinds to carry the solution of the reduced system back to the x
+ * and Z of the original.  row_map and col_map give the original row
+ * and column of each row and column of the reduced system.
+ */
+public class Presolve {
+    public enum Kind {EMPTY_ROW, SINGLETON_ROW, DUPLICATE_ROW, REDUNDANT_ROW, FORCING_ROW,
+		      FIXED_COL, DOMINATED_COL};
+
+    // one reduction: the original row or column, and for a column the
+    // value it is fixed at and the row that fixed it (or 0), for a
+    // duplicate row the row it merged into and the ratio of the two, for
+    // a singleton row its column and the bounds that column had before,
+    // and for a forcing row 1 if it is at its least value, -1 its greatest.
+    // A column fixed by its implied bounds keeps its bounds before, and
+    // the rows that implied the lower and the upper one (or 0).
+    public static class Step {
+	public Kind   kind;
+	public int    index;
+	public int    other;
+	public double value;
+	public double lower;
+	public double upper;
+	public int    lower_row;
+	public int    upper_row;
+
+	Step(Kind kind, int index, int other, double value)
+	{
+	    this.kind  = kind;
+	    this.index = index;
+	    this.other = other;
+	    this.value = value;
+	}
+    }
+
+    public LinearProgram   original = null;
+    public LinearProgram   reduced  = null;
+    public ArrayList<Step> stack    = new ArrayList<Step>();
+    public Simplex.State   state    = Simplex.State.SOLUTION;
+    public int[]           row_map  = null;
+    public int[]           col_map  = null;
+    public double[]        lower    = null;     // the bounds of each original column
+    public double[]        upper    = null;
+    public double          tolerance = 1.0e-9;
+    public double          dual_tolerance = 1.0e-7;    // relative, for checking the duals postsolve() finds
+    public boolean         verbose   = true;
+
+    // implied bounds are swept over the rows at most sweep_limit times,
+    // and only moves larger than bound_step (relative) count
+    public int             sweep_limit = 8;
+    public double          bound_step  = 1.0e-6;
+
+    // A, by rows and by columns; it never changes, only which rows and
+    // columns are still in the system, and b and e of the rows
+    private int[][]    row_index = null;
+    private double[][] row_value = null;
+    private int[][]    col_index = null;
+    private double[][] col_value = null;
+    private int[]      row_count = null;
+    private boolean[]  row_live  = null;
+    private boolean[]  col_live  = null;
+    private double[]   b         = null;
+    private LinearProgram.Equality[] e = null;
+
+    public Presolve(LinearProgram lp)
+    {
+	original = lp;
+    }
+
+
+    // apply the reductions until none is left, and return the reduced
+    // system; state is NO_SOLUTION if they prove it infeasible
+    public LinearProgram reduce()
+    {
+	load();
+
+	boolean changed = true;
+	while (changed && state == Simplex.State.SOLUTION) {
+	    changed = false;
+	    for (int i=1; i <= original.rows && state == Simplex.State.SOLUTION; i++) {
+		if (row_live[i-1] && row_count[i-1] == 0) {
+		    changed = empty_row(i) || changed;
+		} else if (row_live[i-1] && row_count[i-1] == 1) {
+		    changed = singleton_row(i) || changed;
+		}
+	    }
+	    for (int j=1; j <= original.cols && state == Simplex.State.SOLUTION; j++) {
+		if (col_live[j-1]) {
+		    changed = dominated_col(j) || changed;
+		}
+	    }
+	    if (state == Simplex.State.SOLUTION) {
+		changed = duplicate_rows() || changed;
+	    }
+	    if (state == Simplex.State.SOLUTION) {
+		changed = propagate() || changed;
+	    }
+	}
+
+	build();
+
+	System.out.println("Presolve: rows "+original.rows+" -> "+reduced.rows+", cols "+original.cols+" -> "+reduced.cols+", "+stack.size()+" reductions");
+	if (state == Simplex.State.NO_SOLUTION) {
+	    System.out.println("Presolve: the system is infeasible");
+	}
+	System.out.println();
+
+	return reduced;
+    }
+
+
+    // solve the reduced system with simplex, which must have been made
+    // for it, unless presolve has settled it already
+    public Simplex.State optimize(Simplex simplex)
+    {
+	return optimize(simplex, null);
+    }
+
+
+    // solve the reduced system, from basis if it is not null; basis
+    // names rows and columns, so one saved from the reduced system of
+    // an earlier solve still applies
+    public Simplex.State optimize(Simplex simplex, Basis basis)
+    {
+	if (state != Simplex.State.SOLUTION) {
+	    return state;
+	}
+	if (reduced.rows == 0) {
+	    // every remaining column is empty, with a cost that improves
+	    // without limit, or there are no columns left at all
+	    simplex.x = new double[reduced.cols];
+	    simplex.Z = 0;
+	    return (reduced.cols == 0) ? Simplex.State.SOLUTION : Simplex.State.UNBOUNDED;
+	}
+
+	return (basis == null) ? simplex.optimize_system(reduced.minimize) : simplex.optimize_from(reduced.minimize, basis);
+    }
+
+
+    // carry the solution x of the reduced system back to the original
+    public double[] postsolve(double[] x)
+    {
+	double[] y = new double[original.cols];
+	for (int j=1; j <= reduced.cols; j++) {
+	    y[col_map[j-1]-1] = x[j-1];
+	}
+
+	for (int k=stack.size(); 1 <= k; k--) {
+	    Step s = stack.get(k-1);
+	    if (s.kind == Kind.FIXED_COL || s.kind == Kind.DOMINATED_COL) {
+		y[s.index-1] = s.value;
+	    }
+	}
+
+	return y;
+    }
+
+
+    // replace the solution of simplex with that of the original system
+    public void postsolve(Simplex simplex)
+    {
+	simplex.x = postsolve(simplex.x);
+	simplex.Z = 0;
+	for (int j=1; j <= original.cols; j++) {
+	    simplex.Z += original.c[j-1]*simplex.x[j-1];
+	}
+
+	if (simplex.dual != null || reduced.rows == 0) {
+	    simplex.dual = postsolve_duals(simplex.x, (simplex.dual != null) ? simplex.dual : new double[0]);
+	    if (simplex.dual == null) {
+		System.out.println("Presolve: the duals of the removed rows could not be recovered");
+	    }
+	}
+    }
+
+
+    // The duals of the original rows, from those y_r of the reduced
+    // system and the original x.  They are worked as for a minimization,
+    // where the reduced cost d[j] = c[j] - y*a[j] is >= 0 at a lower
+    // bound, <= 0 at an upper bound and 0 in between.  The removed rows
+    // start at 0, and the stack is unwound, last reduction first, to give
+    // each the dual that puts its columns right again: a singleton row
+    // takes the reduced cost of its column, if the column sits at a bound
+    // the row made; a forcing row the least dual that moves all of its
+    // columns to the bounds it fixed them at; and a duplicate row the
+    // dual of the row it merged into, when it can hold it and that row
+    // cannot.  A column fixed by its implied bounds moves the dual of the
+    // row that implied the bound it is pushed against.  A bound implied
+    // through other implied bounds is not followed further, so the result
+    // is checked, and is null if it does not hold.
+    private double[] postsolve_duals(double[] x, double[] y_r)
+    {
+	int m = original.rows;
+	int n = original.cols;
+	double s = original.minimize ? 1.0 : -1.0;
+	double[] y = new double[m];
+	double big = 1.0;
+	for (int i=1; i <= reduced.rows; i++) {
+	    y[row_map[i-1]-1] = s*y_r[i-1];
+	    big = Math.max(big, Math.abs(y_r[i-1]));
+	}
+	double[] d = new double[n];
+	for (int j=1; j <= n; j++) {
+	    d[j-1] = s*original.c[j-1];
+	    for (int k=0; k < col_index[j-1].length; k++) {
+		d[j-1] -= col_value[j-1][k]*y[col_index[j-1][k]-1];
+	    }
+	    big = Math.max(big, Math.abs(original.c[j-1]));
+	}
+	double tol = dual_tolerance*big;
+
+	for (int t=stack.size(); 1 <= t; t--) {
+	    Step step = stack.get(t-1);
+	    int i = step.index;
+	    if (step.kind == Kind.SINGLETON_ROW) {
+		int j = step.other;
+		if (! placed(d[j-1], x[j-1], step.lower, step.upper, tol)) {
+		    set_dual(i, d[j-1]/entry(i, j), y, d);
+		}
+	    } else if (step.kind == Kind.FORCING_ROW) {
+		// at its least value each column needs y[i] <= d[j]/a[i][j],
+		// at its greatest y[i] >= d[j]/a[i][j]; its fixed columns
+		// follow it on the stack
+		double v = 0.0;
+		for (int u=t+1; u <= stack.size() && stack.get(u-1).kind == Kind.FIXED_COL && stack.get(u-1).other == i; u++) {
+		    int j = stack.get(u-1).index;
+		    double r = d[j-1]/entry(i, j);
+		    v = (0.0 < step.value) ? Math.min(v, r) : Math.max(v, r);
+		}
+		set_dual(i, v, y, d);
+	    } else if (step.kind == Kind.FIXED_COL && step.other == 0) {
+		// the row that implied the bound x[j] is pushed against
+		// takes up its reduced cost
+		int j = i;
+		int r = (d[j-1] < 0.0) ? step.upper_row : step.lower_row;
+		if (r != 0 && ! placed(d[j-1], x[j-1], step.lower, step.upper, tol)) {
+		    set_dual(r, y[r-1]+d[j-1]/entry(r, j), y, d);
+		}
+	    } else if (step.kind == Kind.DUPLICATE_ROW) {
+		// row i is value times the row it merged into, and of
+		// several merged into one, the one that binds holds it
+		double v = y[step.other-1];
+		if (! holds(step.other, v, x, tol) && holds(i, v/step.value, x, tol)) {
+		    set_dual(step.other, 0.0, y, d);
+		    set_dual(i, v/step.value, y, d);
+		}
+	    }
+	}
+
+	for (int j=1; j <= n; j++) {
+	    if (! placed(d[j-1], x[j-1], original.lower[j-1], original.upper[j-1], tol)) {
+		return null;
+	    }
+	}
+	for (int i=1; i <= m; i++) {
+	    if (! holds(i, y[i-1], x, tol)) {
+		return null;
+	    }
+	    y[i-1] = s*y[i-1];
+	}
+
+	return y;
+    }
+
+
+    // is reduced cost d right for x[j] within lo and hi?
+    private boolean placed(double d, double x, double lo, double hi, double tol)
+    {
+	boolean at_lower = ! Double.isInfinite(lo) && Math.abs(x-lo) <= 1.0e-6*Math.max(1.0, Math.abs(lo));
+	boolean at_upper = ! Double.isInfinite(hi) && Math.abs(x-hi) <= 1.0e-6*Math.max(1.0, Math.abs(hi));
+	if (at_lower && at_upper) {
+	    return true;
+	} else if (at_lower) {
+	    return -tol <= d;
+	} else if (at_upper) {
+	    return d <= tol;
+	}
+
+	return Math.abs(d) <= tol;
+    }
+
+
+    // can original row i take dual v?  Its sign must suit the row,
+    // and the row must hold with equality at x if v is not 0
+    private boolean holds(int i, double v, double[] x, double tol)
+    {
+	if (Math.abs(v) <= tol) {
+	    return true;
+	} else if ((original.e[i-1] == LinearProgram.Equality.LE && 0.0 < v) || (original.e[i-1] == LinearProgram.Equality.GE && v < 0.0)) {
+	    return false;
+	}
+	double ax = 0.0;
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    ax += row_value[i-1][k]*x[row_index[i-1][k]-1];
+	}
+
+	return Math.abs(ax-original.b[i-1]) <= 1.0e-6*Math.max(1.0, Math.abs(original.b[i-1]));
+    }
+
+
+    // set y[i] to v, and the reduced costs with it
+    private void set_dual(int i, double v, double[] y, double[] d)
+    {
+	double delta = v-y[i-1];
+	y[i-1] = v;
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    d[row_index[i-1][k]-1] -= row_value[i-1][k]*delta;
+	}
+    }
+
+
+    // a[i][j]
+    private double entry(int i, int j)
+    {
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    if (row_index[i-1][k] == j) {
+		return row_value[i-1][k];
+	    }
+	}
+
+	return 0.0;
+    }
+
+
+    private void load()
+    {
+	int m = original.rows;
+	int n = original.cols;
+
+	row_index = new int[m][];
+	row_value = new double[m][];
+	row_count = new int[m];
+	int[] col_count = new int[n];
+	double[] v = new double[n];
+	for (int i=1; i <= m; i++) {
+	    original.get_row(i, v);
+	    int k = 0;
+	    for (int j=1; j <= n; j++) {
+		if (v[j-1] != 0.0) {
+		    k++;
+		}
+	    }
+	    row_index[i-1] = new int[k];
+	    row_value[i-1] = new double[k];
+	    k = 0;
+	    for (int j=1; j <= n; j++) {
+		if (v[j-1] != 0.0) {
+		    row_index[i-1][k] = j;
+		    row_value[i-1][k] = v[j-1];
+		    col_count[j-1]++;
+		    k++;
+		}
+	    }
+	    row_count[i-1] = k;
+	}
+
+	col_index = new int[n][];
+	col_value = new double[n][];
+	for (int j=1; j <= n; j++) {
+	    col_index[j-1] = new int[col_count[j-1]];
+	    col_value[j-1] = new double[col_count[j-1]];
+	    col_count[j-1] = 0;
+	}
+	for (int i=1; i <= m; i++) {
+	    for (int k=0; k < row_index[i-1].length; k++) {
+		int j = row_index[i-1][k];
+		col_index[j-1][col_count[j-1]] = i;
+		col_value[j-1][col_count[j-1]] = row_value[i-1][k];
+		col_count[j-1]++;
+	    }
+	}
+
+	row_live = new boolean[m];
+	col_live = new boolean[n];
+	Arrays.fill(row_live, true);
+	Arrays.fill(col_live, true);
+	b = Arrays.copyOf(original.b, m);
+	e = Arrays.copyOf(original.e, m);
+	lower = Arrays.copyOf(original.lower, n);
+	upper = Arrays.copyOf(original.upper, n);
+	stack.clear();
+	state = Simplex.State.SOLUTION;
+    }
+
+
+    // 0 (<=, =, >=) b[i] either holds or the system is infeasible
+    private boolean empty_row(int i)
+    {
+	boolean holds = (e[i-1] == LinearProgram.Equality.LE) ? -tolerance <= b[i-1]
+		      : (e[i-1] == LinearProgram.Equality.GE) ? b[i-1] <= tolerance
+		      : Math.abs(b[i-1]) <= tolerance;
+	if (! holds) {
+	    infeasible(original.row_labels[i-1]);
+	    return false;
+	}
+
+	drop_row(i, Kind.EMPTY_ROW, 0, 0.0);
+	return true;
+    }
+
+
+    // a[i][j]*x[j] (<=, =, >=) b[i] is a bound on x[j]: an equality
+    // fixes x[j], and an inequality tightens its lower or upper bound
+    private boolean singleton_row(int i)
+    {
+	int k = live_entry(i);
+	int j = row_index[i-1][k];
+	double a = row_value[i-1][k];
+	double bound = b[i-1]/a;
+	LinearProgram.Equality sense = e[i-1];
+	if (a < 0 && sense != LinearProgram.Equality.EQ) {
+	    sense = (sense == LinearProgram.Equality.LE) ? LinearProgram.Equality.GE : LinearProgram.Equality.LE;
+	}
+
+	double lo = (sense == LinearProgram.Equality.LE) ? lower[j-1] : Math.max(lower[j-1], bound);
+	double hi = (sense == LinearProgram.Equality.GE) ? upper[j-1] : Math.min(upper[j-1], bound);
+	double tol = tolerance*Math.max(1.0, Math.abs(bound));
+	if (hi < lo-tol) {
+	    infeasible(original.row_labels[i-1]);
+	    return false;
+	}
+
+	Step step = drop_row(i, Kind.SINGLETON_ROW, j, 0.0);
+	step.lower = lower[j-1];
+	step.upper = upper[j-1];
+	if (hi <= lo+tol) {
+	    fix_col(j, Kind.FIXED_COL, (sense == LinearProgram.Equality.EQ) ? Math.min(Math.max(bound, lower[j-1]), upper[j-1]) : lo, i);
+	} else {
+	    lower[j-1] = lo;
+	    upper[j-1] = hi;
+	}
+
+	return true;
+    }
+
+
+    // x[j] at its lower bound is optimal when its cost does not favor
+    // x[j] and lowering x[j] can only help every row it is in, and at
+    // its upper bound when the cost favors x[j] and raising it can only
+    // help
+    private boolean dominated_col(int j)
+    {
+	double cost = original.minimize ? original.c[j-1] : -original.c[j-1];
+	double dir  = (0.0 <= cost) ? 1.0 : -1.0;
+	if (dir < 0 && Double.isInfinite(upper[j-1])) {
+	    return false;
+	}
+	for (int k=0; k < col_index[j-1].length; k++) {
+	    int i = col_index[j-1][k];
+	    if (! row_live[i-1]) {
+		continue;
+	    }
+	    double a = dir*col_value[j-1][k];
+	    if (e[i-1] == LinearProgram.Equality.EQ
+		|| (e[i-1] == LinearProgram.Equality.LE && a < 0.0)
+		|| (e[i-1] == LinearProgram.Equality.GE && 0.0 < a)) {
+		return false;
+	    }
+	}
+
+	fix_col(j, Kind.DOMINATED_COL, (0 < dir) ? lower[j-1] : upper[j-1], 0);
+	return true;
+    }
+
+
+    // drop the rows the bounds make redundant, fix the columns of the
+    // rows the bounds force, and use the implied bounds to find fixed
+    // columns, infeasible systems and upper bounds that are not needed
+    private boolean propagate()
+    {
+	boolean changed = false;
+	double[] act = new double[2];
+	int[]    inf = new int[2];
+	for (int i=1; i <= original.rows && state == Simplex.State.SOLUTION; i++) {
+	    if (! row_live[i-1]) {
+		continue;
+	    }
+	    activity(i, lower, upper, act, inf);
+	    double tol = tolerance*Math.max(1.0, Math.abs(b[i-1]));
+	    boolean le = (e[i-1] != LinearProgram.Equality.GE);
+	    boolean ge = (e[i-1] != LinearProgram.Equality.LE);
+	    if ((le && inf[0] == 0 && b[i-1]+tol < act[0]) || (ge && inf[1] == 0 && act[1] < b[i-1]-tol)) {
+		infeasible(original.row_labels[i-1]);
+	    } else if ((! le || (inf[1] == 0 && act[1] <= b[i-1]+tol)) && (! ge || (inf[0] == 0 && b[i-1]-tol <= act[0]))) {
+		drop_row(i, Kind.REDUNDANT_ROW, 0, 0.0);
+		changed = true;
+	    } else if (le && inf[0] == 0 && b[i-1]-tol <= act[0]) {
+		force_row(i, true);
+		changed = true;
+	    } else if (ge && inf[1] == 0 && act[1] <= b[i-1]+tol) {
+		force_row(i, false);
+		changed = true;
+	    }
+	}
+
+	// implied bounds hold at every feasible point, but only the
+	// bounds themselves are used to drop rows, so the rows that
+	// imply them stay
+	double[] lo = Arrays.copyOf(lower, original.cols);
+	double[] hi = Arrays.copyOf(upper, original.cols);
+	int[] lo_row = new int[original.cols];
+	int[] hi_row = new int[original.cols];
+	boolean moved = true;
+	for (int sweep=0; sweep < sweep_limit && moved && state == Simplex.State.SOLUTION; sweep++) {
+	    moved = false;
+	    for (int i=1; i <= original.rows; i++) {
+		if (row_live[i-1] && e[i-1] != LinearProgram.Equality.GE) {
+		    moved = tighten(i, 1.0, lo, hi, lo_row, hi_row) || moved;
+		}
+		if (row_live[i-1] && e[i-1] != LinearProgram.Equality.LE) {
+		    moved = tighten(i, -1.0, lo, hi, lo_row, hi_row) || moved;
+		}
+	    }
+	}
+	for (int j=1; j <= original.cols && state == Simplex.State.SOLUTION; j++) {
+	    if (! col_live[j-1]) {
+		continue;
+	    }
+	    double tol = tolerance*Math.max(1.0, Math.abs(lo[j-1]));
+	    if (hi[j-1] < lo[j-1]-tol) {
+		infeasible(original.col_labels[j-1]);
+	    } else if (hi[j-1] <= lo[j-1]+tol) {
+		Step step = fix_col(j, Kind.FIXED_COL, Math.min(Math.max(lo[j-1], lower[j-1]), upper[j-1]), 0);
+		step.lower     = lower[j-1];
+		step.upper     = upper[j-1];
+		step.lower_row = lo_row[j-1];
+		step.upper_row = hi_row[j-1];
+		changed = true;
+	    }
+	}
+
+	// an upper bound that one row implies from the lower bounds
+	// alone is not needed, since the lower bounds always hold
+	for (int i=1; i <= original.rows && state == Simplex.State.SOLUTION; i++) {
+	    if (row_live[i-1] && e[i-1] != LinearProgram.Equality.GE) {
+		changed = free_upper(i, 1.0) || changed;
+	    }
+	    if (row_live[i-1] && e[i-1] != LinearProgram.Equality.LE) {
+		changed = free_upper(i, -1.0) || changed;
+	    }
+	}
+
+	return changed;
+    }
+
+
+    // the least (act[0]) and greatest (act[1]) values of a[i]*x within
+    // the bounds lo and hi, leaving out the infinite terms, which are
+    // counted in inf[0] and inf[1]
+    private void activity(int i, double[] lo, double[] hi, double[] act, int[] inf)
+    {
+	act[0] = act[1] = 0.0;
+	inf[0] = inf[1] = 0;
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    int j = row_index[i-1][k];
+	    if (! col_live[j-1]) {
+		continue;
+	    }
+	    double a = row_value[i-1][k];
+	    double least    = (0 < a) ? a*lo[j-1] : a*hi[j-1];
+	    double greatest = (0 < a) ? a*hi[j-1] : a*lo[j-1];
+	    if (Double.isInfinite(least)) {
+		inf[0]++;
+	    } else {
+		act[0] += least;
+	    }
+	    if (Double.isInfinite(greatest)) {
+		inf[1]++;
+	    } else {
+		act[1] += greatest;
+	    }
+	}
+    }
+
+
+    // tighten lo and hi with the bounds s*a[i]*x <= s*b[i] implies for
+    // each of its columns, noting i in lo_row or hi_row; returns true if
+    // any bound moved
+    private boolean tighten(int i, double s, double[] lo, double[] hi, int[] lo_row, int[] hi_row)
+    {
+	double least = 0.0;
+	int infinite = 0;
+	int at = 0;
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    int j = row_index[i-1][k];
+	    if (col_live[j-1]) {
+		double a = s*row_value[i-1][k];
+		double t = (0 < a) ? a*lo[j-1] : a*hi[j-1];
+		if (Double.isInfinite(t)) {
+		    infinite++;
+		    at = j;
+		} else {
+		    least += t;
+		}
+	    }
+	}
+	if (1 < infinite) {
+	    return false;
+	}
+
+	boolean moved = false;
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    int j = row_index[i-1][k];
+	    if (! col_live[j-1] || (infinite == 1 && at != j)) {
+		continue;
+	    }
+	    double a = s*row_value[i-1][k];
+	    double rest = (infinite == 1) ? least : least-((0 < a) ? a*lo[j-1] : a*hi[j-1]);
+	    double bound = (s*b[i-1]-rest)/a;
+	    double step = bound_step*Math.max(1.0, Math.abs(bound));
+	    if (0 < a && bound < hi[j-1]-step) {
+		hi[j-1] = bound;
+		hi_row[j-1] = i;
+		moved = true;
+	    } else if (a < 0 && lo[j-1]+step < bound) {
+		lo[j-1] = bound;
+		lo_row[j-1] = i;
+		moved = true;
+	    }
+	}
+
+	return moved;
+    }
+
+
+    // when every live coefficient of s*a[i] is positive, the row and the
+    // lower bounds imply an upper bound on each column; drop the upper
+    // bounds that are no tighter than that
+    private boolean free_upper(int i, double s)
+    {
+	double least = 0.0;
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    int j = row_index[i-1][k];
+	    if (col_live[j-1]) {
+		if (s*row_value[i-1][k] < 0) {
+		    return false;
+		}
+		least += s*row_value[i-1][k]*lower[j-1];
+	    }
+	}
+
+	boolean changed = false;
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    int j = row_index[i-1][k];
+	    if (! col_live[j-1] || Double.isInfinite(upper[j-1])) {
+		continue;
+	    }
+	    double a = s*row_value[i-1][k];
+	    double bound = (s*b[i-1]-least+a*lower[j-1])/a;
+	    if (bound <= upper[j-1]+tolerance*Math.max(1.0, Math.abs(bound))) {
+		upper[j-1] = Double.POSITIVE_INFINITY;
+		changed = true;
+		if (verbose) {
+		    System.out.println("presolve: upper bound of "+original.col_labels[j-1]+" is implied by "+original.row_labels[i-1]);
+		}
+	    }
+	}
+
+	return changed;
+    }
+
+
+    // the least (at_least) or greatest value of row i is its bound, so
+    // each column must sit at the bound that gives that value
+    private void force_row(int i, boolean at_least)
+    {
+	drop_row(i, Kind.FORCING_ROW, 0, at_least ? 1.0 : -1.0);
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    int j = row_index[i-1][k];
+	    if (col_live[j-1]) {
+		boolean low = (0 < row_value[i-1][k]) == at_least;
+		fix_col(j, Kind.FIXED_COL, low ? lower[j-1] : upper[j-1], i);
+	    }
+	}
+    }
+
+
+    // find rows whose live entries are a multiple of an earlier row, and
+    // merge the two into the earlier one
+    private boolean duplicate_rows()
+    {
+	int m = original.rows;
+	Integer[] order = new Integer[m];
+	int[] hash = new int[m];
+	int count = 0;
+	for (int i=1; i <= m; i++) {
+	    if (row_live[i-1] && 2 <= row_count[i-1]) {
+		int h = row_count[i-1];
+		for (int k=0; k < row_index[i-1].length; k++) {
+		    if (col_live[row_index[i-1][k]-1]) {
+			h = 31*h+row_index[i-1][k];
+		    }
+		}
+		hash[i-1] = h;
+		order[count++] = i;
+	    }
+	}
+	Arrays.sort(order, 0, count, (p, q) -> (hash[p-1] != hash[q-1])
+		? Integer.compare(hash[p-1], hash[q-1])
+		: Integer.compare(p, q));
+
+	boolean changed = false;
+	for (int s=0; s < count && state == Simplex.State.SOLUTION; s++) {
+	    int i = order[s];
+	    for (int t=s+1; t < count && hash[order[t]-1] == hash[i-1] && row_live[i-1]; t++) {
+		int k = order[t];
+		if (! row_live[k-1]) {
+		    continue;
+		}
+		double r = ratio(i, k);
+		if (r != 0.0) {
+		    changed = merge_rows(i, k, r) || changed;
+		}
+	    }
+	}
+
+	return changed;
+    }
+
+
+    // r with live row k = r * live row i, or 0 if there is none
+    private double ratio(int i, int k)
+    {
+	if (row_count[i-1] != row_count[k-1]) {
+	    return 0.0;
+	}
+
+	double r = 0.0;
+	int p = 0;
+	int q = 0;
+	while (true) {
+	    while (p < row_index[i-1].length && ! col_live[row_index[i-1][p]-1]) {
+		p++;
+	    }
+	    while (q < row_index[k-1].length && ! col_live[row_index[k-1][q]-1]) {
+		q++;
+	    }
+	    if (p == row_index[i-1].length || q == row_index[k-1].length) {
+		return (p == row_index[i-1].length && q == row_index[k-1].length) ? r : 0.0;
+	    }
+	    if (row_index[i-1][p] != row_index[k-1][q]) {
+		return 0.0;
+	    }
+	    double ai = row_value[i-1][p];
+	    double ak = row_value[k-1][q];
+	    if (r == 0.0) {
+		r = ak/ai;
+	    } else if (tolerance*Math.max(1.0, Math.abs(ak)) < Math.abs(ak-r*ai)) {
+		return 0.0;
+	    }
+	    p++;
+	    q++;
+	}
+    }
+
+
+    // row k is r times row i; fold the bound of row k into row i
+    private boolean merge_rows(int i, int k, double r)
+    {
+	double bk = b[k-1]/r;
+	LinearProgram.Equality ek = e[k-1];
+	if (r < 0 && ek != LinearProgram.Equality.EQ) {
+	    ek = (ek == LinearProgram.Equality.LE) ? LinearProgram.Equality.GE : LinearProgram.Equality.LE;
+	}
+	LinearProgram.Equality ei = e[i-1];
+	double bi = b[i-1];
+	double tol = tolerance*Math.max(1.0, Math.max(Math.abs(bi), Math.abs(bk)));
+
+	if (ei == LinearProgram.Equality.EQ || ek == LinearProgram.Equality.EQ) {
+	    double fixed = (ei == LinearProgram.Equality.EQ) ? bi : bk;
+	    LinearProgram.Equality other = (ei == LinearProgram.Equality.EQ) ? ek : ei;
+	    double bound = (ei == LinearProgram.Equality.EQ) ? bk : bi;
+	    boolean holds = (other == LinearProgram.Equality.EQ) ? Math.abs(fixed-bound) <= tol
+			  : (other == LinearProgram.Equality.LE) ? fixed <= bound+tol
+			  : bound-tol <= fixed;
+	    if (! holds) {
+		infeasible(original.row_labels[k-1]);
+		return false;
+	    }
+	    b[i-1] = fixed;
+	    e[i-1] = LinearProgram.Equality.EQ;
+	} else if (ei == ek) {
+	    b[i-1] = (ei == LinearProgram.Equality.LE) ? Math.min(bi, bk) : Math.max(bi, bk);
+	} else {
+	    double hi = (ei == LinearProgram.Equality.LE) ? bi : bk;
+	    double lo = (ei == LinearProgram.Equality.LE) ? bk : bi;
+	    if (hi+tol < lo) {
+		infeasible(original.row_labels[k-1]);
+		return false;
+	    } else if (tol < hi-lo) {
+		return false;           // a range, which stays two rows
+	    }
+	    b[i-1] = hi;
+	    e[i-1] = LinearProgram.Equality.EQ;
+	}
+
+	drop_row(k, Kind.DUPLICATE_ROW, i, r);
+	return true;
+    }
+
+
+    // the position in row i of its one live entry
+    private int live_entry(int i)
+    {
+	for (int k=0; k < row_index[i-1].length; k++) {
+	    if (col_live[row_index[i-1][k]-1]) {
+		return k;
+	    }
+	}
+	return -1;
+    }
+
+
+    private Step drop_row(int i, Kind kind, int other, double value)
+    {
+	row_live[i-1] = false;
+	Step step = new Step(kind, i, other, value);
+	stack.add(step);
+	if (verbose) {
+	    System.out.println("presolve: "+kind+" "+original.row_labels[i-1]
+		+ ((kind == Kind.DUPLICATE_ROW) ? " into "+original.row_labels[other-1] : ""));
+	}
+
+	return step;
+    }
+
+
+    // take x[j] = value out of the system, moving it into b; row is
+    // the row that forces the value, if any
+    private Step fix_col(int j, Kind kind, double value, int row)
+    {
+	col_live[j-1] = false;
+	for (int k=0; k < col_index[j-1].length; k++) {
+	    int i = col_index[j-1][k];
+	    b[i-1] = b[i-1]-col_value[j-1][k]*value;
+	    row_count[i-1]--;
+	}
+	Step step = new Step(kind, j, row, value);
+	stack.add(step);
+	if (verbose) {
+	    System.out.println("presolve: "+kind+" "+original.col_labels[j-1]+" = "+value);
+	}
+
+	return step;
+    }
+
+
+    private void infeasible(String label)
+    {
+	state = Simplex.State.NO_SOLUTION;
+	System.err.println("No Solution: "+label+" cannot be satisfied");
+    }
+
+
+    // copy the live rows and columns, with their bounds, into the
+    // reduced system
+    private void build()
+    {
+	int m = 0;
+	for (int i=1; i <= original.rows; i++) {
+	    m += row_live[i-1] ? 1 : 0;
+	}
+	int n = 0;
+	for (int j=1; j <= original.cols; j++) {
+	    n += col_live[j-1] ? 1 : 0;
+	}
+
+	row_map = new int[m];
+	col_map = new int[n];
+	int[] col_of = new int[original.cols];
+	n = 0;
+	for (int j=1; j <= original.cols; j++) {
+	    if (col_live[j-1]) {
+		col_map[n++] = j;
+		col_of[j-1] = n;
+	    }
+	}
+
+	reduced = new LinearProgram(m, n, original.sparse != null);
+	reduced.minimize  = original.minimize;
+	reduced.obj_label = original.obj_label;
+	for (int j=1; j <= n; j++) {
+	    reduced.c[j-1]          = original.c[col_map[j-1]-1];
+	    reduced.lower[j-1]      = lower[col_map[j-1]-1];
+	    reduced.upper[j-1]      = upper[col_map[j-1]-1];
+	    reduced.col_labels[j-1] = original.col_labels[col_map[j-1]-1];
+	}
+	m = 0;
+	for (int i=1; i <= original.rows; i++) {
+	    if (! row_live[i-1]) {
+		continue;
+	    }
+	    row_map[m++] = i;
+	    reduced.b[m-1]          = b[i-1];
+	    reduced.e[m-1]          = e[i-1];
+	    reduced.row_labels[m-1] = original.row_labels[i-1];
+	    for (int k=0; k < row_index[i-1].length; k++) {
+		int j = row_index[i-1][k];
+		if (col_live[j-1]) {
+		    reduced.set_a(m, col_of[j-1], row_value[i-1][k]);
+		}
+	    }
+	}
+    }
+}
@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+/*
+ * RevisedSimplex: the same Big M method as Simplex, but instead of
+ * rewriting the whole augmented tableau on every pivot it keeps only an
+ * LU factorization of the basis.  The reduced costs (C) are priced from
+ * the duals y = B'^-1 c_B and the entering column is computed on demand
+ * as B^-1 a_q, so memory is O(m*m) on top of the problem itself.
+ *
+ * Pivots update the factorization in product form (an eta file), and
+ * the basis is factored from scratch only every refactor_interval
+ * pivots, or sooner when an eta pivot is too small relative to its
+ * column to be trusted.
+ *
+ * The results (State, x, Z, basic_variables) are the same as Simplex,
+ * so either engine can be used through a Simplex reference.
+ */
+public class RevisedSimplex extends Simplex {
+    public LUFactor lu = null;
+
+    public int    refactor_interval   = 64;
+    public double stability_tolerance = 1.0e-7;
+    public int    refactorizations    = 0;
+
+    private double[][] basis = null;
+    private double[]   alpha = null;
+    private double[]   y     = null;
+
+    private LinearProgram original = null;  // the system as given, if its bounds became rows
+
+    public RevisedSimplex(LinearProgram s)
+    {
+	super(s);
+    }
+
+
+    public State optimize_system(boolean minimize)
+    {
+	// the bounds are kept as rows here, on columns shifted to a
+	// lower bound of 0
+	if (system.has_bounds()) {
+	    original = system;
+	    system  = system.bound_rows();
+	}
+	setup_layout(minimize);
+	pricing.reset(this);
+	stalls  = 0;
+	stalled = 0;
+
+	System.out.println("Setup minimize="+minimize+" (revised)");
+	System.out.printf("extras = %d\n", extras);
+	System.out.println();
+
+	State soln_type = revised_simplex();
+
+	soln_type = extract_solution(soln_type);
+	if (original != null) {
+	    x = original.from_bound_rows(x);
+	    Z = 0;
+	    for (int j=1; j <= original.cols && soln_type == State.SOLUTION; j++) {
+		Z += original.c[j-1]*x[j-1];
+	    }
+	}
+
+	System.out.println("Optimized");
+	print_iterations();
+	System.out.println("refactorizations = "+refactorizations);
+	System.out.println();
+
+	return soln_type;
+    }
+
+
+    private State revised_simplex()
+    {
+	if (! system.is_valid() || augmented_cols <= augmented_rows) {
+	    System.err.println("No Solution: cols="+augmented_cols+" rows="+augmented_rows);
+	    return State.NO_SOLUTION;
+	}
+
+	lu    = new LUFactor(augmented_rows);
+	basis = new double[augmented_rows][augmented_rows];
+	alpha = new double[augmented_rows];
+	y     = new double[augmented_rows];
+	refactorizations = 0;
+
+	if (! refactor()) {
+	    System.err.println("No Solution: singular basis");
+	    return State.NO_SOLUTION;
+	}
+
+	State result = pivot_loop();
+	if (result == State.SOLUTION && phase == 1) {
+	    // artificial variables left at zero stay in the basis, the
+	    // ratio test keeps them from moving in phase 2
+	    phase1_iterations = iterations;
+	    for (int i=1; i <= augmented_rows; i++) {
+		if (basic_variables[i-1] < 0 && primal_tolerance < B[i-1]) {
+		    return State.NO_SOLUTION;
+		}
+	    }
+
+	    System.out.println("Phase 2");
+	    phase  = 2;
+	    result = pivot_loop();
+	}
+
+	return result;
+    }
+
+
+    private State pivot_loop()
+    {
+	State result = State.SOLUTION;
+	for (price(); ; price()) {
+	    int pc = pivot_col();
+	    if (pc == 0 || (phase == 1 && art_var_ct == 0)) {
+		break;
+	    }
+
+	    augmented_column(pc, alpha);
+	    lu.ftran(alpha);
+	    int pr = ratio_test(alpha);
+
+	    System.out.println("pivot=("+pr+","+pc+") "+pricing.name());
+
+	    if (pr == 0) {
+		// Z is unbounded
+		result = State.UNBOUNDED;
+		break;
+	    }
+	    iterations++;
+	    check_progress(C[pc-1]*B[pr-1]/alpha[pr-1]);
+	    update_pricing(pr, pc);
+
+	    // step along the edge to the new vertex
+	    double theta = B[pr-1]/alpha[pr-1];
+	    kernels.sub_scaled(B, 0, alpha, 0, augmented_rows, theta);
+	    B[pr-1] = theta;
+
+	    update_basis(pr, pc);
+
+	    if (lu.eta_count+1 < refactor_interval && stable(pr, alpha)) {
+		lu.update(pr-1, alpha);
+	    } else if (! refactor()) {
+		System.err.println("No Solution: singular basis");
+		result = State.NO_SOLUTION;
+		break;
+	    }
+	}
+
+	return result;
+    }
+
+
+    // an eta pivot is accepted only if it is not tiny next to the rest
+    // of the column, otherwise the basis is factored again
+    private boolean stable(int pr, double[] alpha)
+    {
+	double e = 0.0;
+	for (int i=1; i <= augmented_rows; i++) {
+	    e = max(e, Math.abs(alpha[i-1]));
+	}
+
+	return Math.abs(alpha[pr-1]) >= stability_tolerance*e;
+    }
+
+
+    // rebuild the basis matrix from the basic columns and factor it,
+    // then recompute the basic solution to shed accumulated error
+    private boolean refactor()
+    {
+	for (int i=1; i <= augmented_rows; i++) {
+	    augmented_column(Math.abs(basic_variables[i-1]), y);
+	    for (int k=1; k <= augmented_rows; k++) {
+		basis[k-1][i-1] = y[k-1];
+	    }
+	}
+
+	refactorizations++;
+	if (! lu.factor(basis)) {
+	    return false;
+	}
+
+	for (int i=1; i <= augmented_rows; i++) {
+	    B[i-1] = system.b[i-1];
+	}
+	lu.ftran(B);
+
+	return true;
+    }
+
+
+    // column j of the tableau, B^-1*a_j
+    public void column(int j, double[] alpha)
+    {
+	augmented_column(j, alpha);
+	lu.ftran(alpha);
+    }
+
+
+    // out = v'*B^-1*A, computed as w'*A with B'w = v
+    public void combine_rows(double[] v, double[] out)
+    {
+	double[] w = new double[augmented_rows];
+	for (int i=1; i <= augmented_rows; i++) {
+	    w[i-1] = v[i-1];
+	}
+	lu.btran(w);
+
+	// out = 0 - (-w)'A
+	for (int j=1; j <= system.cols; j++) {
+	    out[j-1] = 0.0;
+	}
+	for (int i=1; i <= augmented_rows; i++) {
+	    w[i-1] = -w[i-1];
+	}
+	system.sub_combination(kernels, out, w);
+	for (int j=system.cols+1; j <= augmented_cols; j++) {
+	    out[j-1] = -w[aux_row[j-1]-1]*aux_coef[j-1];
+	}
+    }
+
+
+    // compute the reduced costs C = c - A'y, where B'y = c_B
+    private void price()
+    {
+	for (int i=1; i <= augmented_rows; i++) {
+	    y[i-1] = augmented_cost(Math.abs(basic_variables[i-1]));
+	}
+	lu.btran(y);
+
+	for (int j=1; j <= augmented_cols; j++) {
+	    C[j-1] = augmented_cost(j);
+	}
+	system.sub_combination(kernels, C, y);
+	for (int j=system.cols+1; j <= augmented_cols; j++) {
+	    C[j-1] = C[j-1]-y[aux_row[j-1]-1]*aux_coef[j-1];
+	}
+
+	// basic columns price out to exactly zero
+	for (int i=1; i <= augmented_rows; i++) {
+	    C[Math.abs(basic_variables[i-1])-1] = 0.0;
+	}
+    }
+}
@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * RowGeneration: solves a linear program with too many rows to load,
+ * when only a few of them bind at the optimum.  The master holds the
+ * columns and an initial subset of the rows; after each solve the
+ * solution x goes to a Separator, which returns the rows x violates.
+ * They are appended with LinearProgram.add_row and the master is
+ * re-optimized from its last basis with the dual simplex, until x
+ * violates nothing, so the tableau only ever holds the rows that were
+ * needed.  A master unbounded before any row is added has its columns
+ * boxed until the rows added bound it.
+ *
+ * The Separator can be a callback that finds violated rows on its own
+ * (a shortest path for subtour rows, say), or a Pool, which keeps the
+ * rows sparse, without the tableau, and scans them.  Pool.read() loads
+ * a pool from a file of rows written as in a LinearProgram file:
+ *
+ *     rows
+ *     "r1",3,0,-1,6,<=,96
+ *     "r2",0,2,0,1,>=,10
+ */
+public class RowGeneration {
+    // the separation callback: given the solution of the master, return
+    // the rows it violates, or none when there are none
+    public interface Separator {
+	public List<Row> separate(double[] x);
+    }
+
+    // a row of the full system: a*x e b
+    public static class Row {
+	public double[]               a;
+	public double                 b;
+	public LinearProgram.Equality e;
+	public String                 label;
+
+	public Row(double[] a, double b, LinearProgram.Equality e, String label)
+	{
+	    this.a     = a;
+	    this.b     = b;
+	    this.e     = e;
+	    this.label = label;
+	}
+
+	// how far x is outside the row, or zero or less if it is not
+	public double violation(double[] x)
+	{
+	    double ax = 0.0;
+	    for (int j=1; j <= a.length; j++) {
+		ax += a[j-1]*x[j-1];
+	    }
+
+	    return violation(ax, b, e);
+	}
+
+	static double violation(double ax, double b, LinearProgram.Equality e)
+	{
+	    switch (e) {
+	    case LE :
+		return ax-b;
+	    case GE :
+		return b-ax;
+	    default :
+		return Math.abs(ax-b);
+	    }
+	}
+    }
+
+    // A store of rows, each kept as its nonzeros only.  separate() scans
+    // them all and returns those x violates, as dense rows.  A row already
+    // in the master is satisfied by its solution, so it does not come back.
+    public static class Pool implements Separator {
+	public int cols = 0;
+	public double tolerance = 1e-6;
+	private ArrayList<int[]>    index = new ArrayList<int[]>();
+	private ArrayList<double[]> value = new ArrayList<double[]>();
+	private ArrayList<Double>   rhs   = new ArrayList<Double>();
+	private ArrayList<LinearProgram.Equality> eq = new ArrayList<LinearProgram.Equality>();
+	private ArrayList<String>   labels = new ArrayList<String>();
+
+	public Pool(int cols)
+	{
+	    this.cols = cols;
+	}
+
+	public int size()
+	{
+	    return rhs.size();
+	}
+
+	public void add(double[] a, double b, LinearProgram.Equality e, String label)
+	{
+	    int nz = 0;
+	    for (int j=1; j <= cols; j++) {
+		if (a[j-1] != 0.0) {
+		    nz += 1;
+		}
+	    }
+	    int[]    ix = new int[nz];
+	    double[] v  = new double[nz];
+	    nz = 0;
+	    for (int j=1; j <= cols; j++) {
+		if (a[j-1] != 0.0) {
+		    ix[nz] = j-1;
+		    v[nz]  = a[j-1];
+		    nz += 1;
+		}
+	    }
+	    index.add(ix);
+	    value.add(v);
+	    rhs.add(b);
+	    eq.add(e);
+	    labels.add(label);
+	}
+
+	public List<Row> separate(double[] x)
+	{
+	    List<Row> r = new ArrayList<Row>();
+	    for (int k=1; k <= size(); k++) {
+		int[]    ix = index.get(k-1);
+		double[] v  = value.get(k-1);
+		double ax = 0.0;
+		for (int q=0; q < ix.length; q++) {
+		    ax += v[q]*x[ix[q]];
+		}
+		double b = rhs.get(k-1);
+		if (tolerance*(1.0+Math.abs(b)) < Row.violation(ax, b, eq.get(k-1))) {
+		    double[] a = new double[cols];
+		    for (int q=0; q < ix.length; q++) {
+			a[ix[q]] = v[q];
+		    }
+		    r.add(new Row(a, b, eq.get(k-1), labels.get(k-1)));
+		}
+	    }
+
+	    return r;
+	}
+
+	// the rows of file, a line at a time, so only their nonzeros are
+	// ever held
+	public static Pool read(File file, int cols)
+	{
+	    Pool r = new Pool(cols);
+	    try {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		String line = LinearProgram.read_line(raf);
+		if (line == null || ! line.trim().equalsIgnoreCase("rows")) {
+		    System.err.println("RowGeneration: "+file+" is not a file of rows.");
+		    raf.close();
+		    return r;
+		}
+		double[] a = new double[cols];
+		while ((line=LinearProgram.read_line(raf)) != null) {
+		    String[] laeb = line.split(",");
+		    if (laeb.length < cols+3) {
+			System.err.println("RowGeneration: a row of "+file+" has fewer than "+cols+" columns, skipped.");
+			continue;
+		    }
+		    String label = laeb[0].trim();
+		    label = label.substring(1, label.length()-1);
+		    for (int j=1; j <= cols; j++) {
+			a[j-1] = Double.parseDouble(laeb[j].trim());
+		    }
+		    char c = laeb[cols+1].trim().charAt(0);
+		    LinearProgram.Equality e = (c == '<') ? LinearProgram.Equality.LE : (c == '=') ? LinearProgram.Equality.EQ : LinearProgram.Equality.GE;
+		    r.add(a, Double.parseDouble(laeb[cols+2].trim()), e, label);
+		}
+		raf.close();
+	    } catch (Exception exception) {
+		System.out.println(exception);
+	    }
+
+	    return r;
+	}
+    }
+
+    public LinearProgram master    = null;
+    public Simplex       simplex   = null;
+    public Separator     separator = null;
+    public int           max_rounds = 1000;
+    public int           max_batch  = 0;       // rows added per round, 0 for one per column
+    public double        tolerance  = 1e-6;    // a violation must beat this, relative to |b|
+    public double        box        = 1e6;     // bound on the columns while the master is unbounded
+    public int           rounds   = 0;
+    public int           added    = 0;         // rows added to the master
+    public int           rejected = 0;         // rows returned but not added
+
+    public RowGeneration(Simplex simplex, Separator separator)
+    {
+	this.simplex   = simplex;
+	this.master    = simplex.system;
+	this.separator = separator;
+    }
+
+
+    // solve the master, then separate and re-optimize until x violates
+    // no row.  x still violating rows after max_rounds is No Solution.
+    public Simplex.State solve(boolean minimize)
+    {
+	rounds   = 0;
+	added    = 0;
+	rejected = 0;
+
+	// the solve changes the signs of some rows, so keep a copy in case
+	// the master is unbounded and has to be solved again
+	LinearProgram plain = null;
+	for (int j=1; j <= master.cols && plain == null; j++) {
+	    if (master.lower[j-1] == Double.NEGATIVE_INFINITY || master.upper[j-1] == Double.POSITIVE_INFINITY) {
+		plain = master.clone();
+	    }
+	}
+
+	Simplex.State soln_type = simplex.optimize_system(minimize);
+	boolean boxed = false;
+	List<Row> kept = new ArrayList<Row>();     // the rows added, while boxed
+	if (soln_type == Simplex.State.UNBOUNDED && plain != null) {
+	    // rows still in the separator may bound it, so box the columns
+	    // until they do
+	    System.out.println("Row generation: the master is unbounded, its columns are bounded by "+box+" for now");
+	    master = plain.clone();
+	    for (int j=1; j <= master.cols; j++) {
+		master.lower[j-1] = Math.max(master.lower[j-1], -box);
+		master.upper[j-1] = Math.min(master.upper[j-1], box);
+	    }
+	    soln_type = solve_again(master, minimize);
+	    boxed = true;
+	}
+
+	while (soln_type == Simplex.State.SOLUTION) {
+	    List<Row> batch = violated(separator.separate(simplex.x));
+	    if (batch.isEmpty()) {
+		break;
+	    } else if (rounds == max_rounds) {
+		System.out.println("Row generation: x still violates rows after "+rounds+" rounds");
+		soln_type = Simplex.State.NO_SOLUTION;
+		break;
+	    }
+
+	    rounds += 1;
+	    for (Row row : batch) {
+		master.add_row(false, master.rows, row.a, row.b, row.e, row.label);
+	    }
+	    if (boxed) {
+		kept.addAll(batch);
+	    }
+	    added += batch.size();
+	    soln_type = simplex.reoptimize();
+	    System.out.println("Row generation round "+rounds+": "+batch.size()+" rows, Z = "+simplex.Z);
+	}
+
+	// a column still held by the box is one no row bounds; otherwise the
+	// rows added bound the master, which is solved once more without the
+	// box, whose large bounds cost the tableau some precision
+	for (int j=1; boxed && soln_type == Simplex.State.SOLUTION && j <= master.cols; j++) {
+	    if (box-tolerance*(1.0+box) <= Math.abs(simplex.x[j-1])) {
+		System.out.println("Row generation: "+master.col_labels[j-1]+" is held only by the bound of "+box);
+		soln_type = Simplex.State.UNBOUNDED;
+	    }
+	}
+	if (boxed && soln_type == Simplex.State.SOLUTION) {
+	    for (Row row : kept) {
+		plain.add_row(false, plain.rows, row.a, row.b, row.e, row.label);
+	    }
+	    master = plain;
+	    soln_type = solve_again(master, minimize);
+	}
+
+	System.out.println("Row generation: "+rounds+" rounds, "+added+" rows added, "+rejected+" rejected");
+
+	return soln_type;
+    }
+
+
+    // solve system from scratch in place of the master
+    private Simplex.State solve_again(LinearProgram system, boolean minimize)
+    {
+	Simplex s = new Simplex(system);
+	s.settings_from(simplex);
+	simplex.release();
+	simplex = s;
+
+	return simplex.optimize_system(minimize);
+    }
+
+
+    // the rows of rows that x violates, most violated first, at most
+    // max_batch of them; a vertex of the master lies on no more rows than
+    // it has columns, so by default that many
+    private List<Row> violated(List<Row> rows)
+    {
+	List<Row>    batch = new ArrayList<Row>();
+	List<Double> depth = new ArrayList<Double>();
+	if (rows == null) {
+	    return batch;
+	}
+
+	for (Row row : rows) {
+	    if (row.a == null || row.a.length != master.cols) {
+		System.err.println("Row generation: row "+row.label+" has the wrong number of columns, skipped");
+		rejected += 1;
+		continue;
+	    }
+	    double v = row.violation(simplex.x);
+	    if (v <= tolerance*(1.0+Math.abs(row.b))) {
+		rejected += 1;
+		continue;
+	    }
+
+	    // insert in order of violation
+	    int k = batch.size();
+	    while (0 < k && depth.get(k-1) < v) {
+		k -= 1;
+	    }
+	    batch.add(k, row);
+	    depth.add(k, v);
+	}
+
+	int most = (0 < max_batch) ? max_batch : master.cols;
+	if (most < batch.size()) {
+	    rejected += batch.size()-most;
+	    batch = new ArrayList<Row>(batch.subList(0, most));
+	}
+
+	return batch;
+    }
+}
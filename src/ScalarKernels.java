@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+/*
+ * ScalarKernels: the pivot loops one element at a time.
+ */
+public class ScalarKernels extends Kernels {
+    public String name()
+    {
+	return "scalar";
+    }
+
+
+    public void divide(double[] x, int xo, int n, double s)
+    {
+	for (int j=xo; j < xo+n; j++) {
+	    x[j] = x[j]/s;
+	}
+    }
+
+
+    public void sub_scaled(double[] y, int yo, double[] x, int xo, int n, double a)
+    {
+	for (int j=0; j < n; j++) {
+	    y[yo+j] = y[yo+j]-a*x[xo+j];
+	}
+    }
+
+
+    public int argmin(double[] v, int[] keep, int off, int n, double bound)
+    {
+	int j = -1;
+	double e = bound;
+	for (int i=off; i < off+n; i++) {
+	    double f = v[i];
+	    if (f < e && 0 < keep[i]) {
+		j = i;
+		e = f;
+	    }
+	}
+
+	return j;
+    }
+
+
+    public double ratio_bound(double[] b, double[] alpha, int n, double tol, double slack)
+    {
+	double bound = Double.POSITIVE_INFINITY;
+	for (int i=0; i < n; i++) {
+	    double g = alpha[i];
+	    if (g > tol) {
+		double h = (b[i]+slack)/g;
+		if (h < bound) {
+		    bound = h;
+		}
+	    }
+	}
+
+	return bound;
+    }
+}
@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.Arrays;
+
+/*
+ * Scaling: equilibrates a LinearProgram ahead of the simplex method, so
+ * the entries of A are close to 1 in magnitude.  Badly scaled systems
+ * (entries from 1e-4 to 1e6, say) take more iterations and lose more
+ * accuracy to round off.  Rows and columns are first scaled by the
+ * geometric mean of their largest and smallest entries, repeated while
+ * the spread of A keeps shrinking, and then by their largest entry.
+ * Every factor is rounded to a power of 2, so scaling is exact.
+ *
+ * The scaled system is A' = R*A*S, b' = R*b, c' = S*c, where R and S
+ * are diagonal (row_scale and col_scale), so x = S*x' and y = R*y' for
+ * the duals.  unscale() carries a solution back to the original.
+ */
+public class Scaling {
+    public LinearProgram original  = null;
+    public LinearProgram scaled    = null;
+    public double[]      row_scale = null;
+    public double[]      col_scale = null;
+    public int           max_passes  = 8;
+    public double        improvement = 0.9;    // a pass must shrink the spread by 10%
+    public int           passes  = 0;
+    public double        before  = 1.0;        // max |a| / min |a|, before and after
+    public double        after   = 1.0;
+
+    // the nonzeros of A, by rows
+    private int[][]    row_index = null;
+    private double[][] row_value = null;
+
+    public Scaling(LinearProgram lp)
+    {
+	original = lp;
+    }
+
+
+    // compute the scale factors and return the scaled system
+    public LinearProgram scale()
+    {
+	load();
+
+	int m = original.rows;
+	int n = original.cols;
+	row_scale = new double[m];
+	col_scale = new double[n];
+	Arrays.fill(row_scale, 1.0);
+	Arrays.fill(col_scale, 1.0);
+
+	before = spread();
+	double last = before;
+	for (passes=0; passes < max_passes; ) {
+	    geometric_pass();
+	    passes++;
+	    double now = spread();
+	    if (improvement*last < now) {
+		break;
+	    }
+	    last = now;
+	}
+	equilibrate();
+
+	for (int i=1; i <= m; i++) {
+	    row_scale[i-1] = power_of_2(row_scale[i-1]);
+	}
+	for (int j=1; j <= n; j++) {
+	    col_scale[j-1] = power_of_2(col_scale[j-1]);
+	}
+	after = spread();
+
+	build();
+
+	System.out.printf("Scaling: |A| spread %.3e -> %.3e, %d geometric passes\n", before, after, passes);
+	System.out.println();
+
+	return scaled;
+    }
+
+
+    // replace the solution of simplex (of the scaled system) with that
+    // of the original system
+    public void unscale(Simplex simplex)
+    {
+	simplex.Z = 0;
+	for (int j=1; j <= original.cols; j++) {
+	    simplex.x[j-1] = col_scale[j-1]*simplex.x[j-1];
+	    simplex.Z += original.c[j-1]*simplex.x[j-1];
+	}
+
+	if (simplex.dual != null) {
+	    double[] y = new double[original.rows];
+	    for (int i=1; i <= original.rows; i++) {
+		y[i-1] = row_scale[i-1]*simplex.dual[i-1];
+	    }
+	    simplex.dual = y;
+	}
+    }
+
+
+    // M for the Big M method on the scaled system.  Sized from the
+    // scaled A, b and c, which are near 1, it is often too small; an
+    // artificial of scaled row i stands for 1/row_scale[i] of one on the
+    // original row, so M of the original divided by the least row_scale
+    // keeps every artificial as costly as it was there.
+    public double big_m()
+    {
+	double big = Simplex.max(1.0, original.max_abs_a());
+	for (int i=1; i <= original.rows; i++) {
+	    big = Simplex.max(big, Math.abs(original.b[i-1]));
+	}
+	for (int j=1; j <= original.cols; j++) {
+	    big = Simplex.max(big, Math.abs(original.c[j-1]));
+	}
+	double least = 1.0;
+	for (int i=1; i <= original.rows; i++) {
+	    least = Math.min(least, row_scale[i-1]);
+	}
+
+	return 2.0*big/least;
+    }
+
+
+    private void load()
+    {
+	int m = original.rows;
+	int n = original.cols;
+
+	row_index = new int[m][];
+	row_value = new double[m][];
+	double[] v = new double[n];
+	for (int i=1; i <= m; i++) {
+	    original.get_row(i, v);
+	    int k = 0;
+	    for (int j=1; j <= n; j++) {
+		if (v[j-1] != 0.0) {
+		    k++;
+		}
+	    }
+	    row_index[i-1] = new int[k];
+	    row_value[i-1] = new double[k];
+	    k = 0;
+	    for (int j=1; j <= n; j++) {
+		if (v[j-1] != 0.0) {
+		    row_index[i-1][k] = j;
+		    row_value[i-1][k] = Math.abs(v[j-1]);
+		    k++;
+		}
+	    }
+	}
+    }
+
+
+    // scale each row, then each column, by 1/sqrt(min*max) of its entries
+    private void geometric_pass()
+    {
+	int m = original.rows;
+	int n = original.cols;
+
+	for (int i=1; i <= m; i++) {
+	    double lo = Double.POSITIVE_INFINITY;
+	    double hi = 0.0;
+	    for (int k=0; k < row_index[i-1].length; k++) {
+		double v = row_value[i-1][k]*col_scale[row_index[i-1][k]-1];
+		lo = Math.min(lo, v);
+		hi = Math.max(hi, v);
+	    }
+	    if (0.0 < hi) {
+		row_scale[i-1] = 1.0/Math.sqrt(lo*hi);
+	    }
+	}
+
+	double[] lo = new double[n];
+	double[] hi = new double[n];
+	Arrays.fill(lo, Double.POSITIVE_INFINITY);
+	for (int i=1; i <= m; i++) {
+	    for (int k=0; k < row_index[i-1].length; k++) {
+		int j = row_index[i-1][k];
+		double v = row_scale[i-1]*row_value[i-1][k];
+		lo[j-1] = Math.min(lo[j-1], v);
+		hi[j-1] = Math.max(hi[j-1], v);
+	    }
+	}
+	for (int j=1; j <= n; j++) {
+	    if (0.0 < hi[j-1]) {
+		col_scale[j-1] = 1.0/Math.sqrt(lo[j-1]*hi[j-1]);
+	    }
+	}
+    }
+
+
+    // scale each row, then each column, so its largest entry is 1
+    private void equilibrate()
+    {
+	int m = original.rows;
+	int n = original.cols;
+
+	for (int i=1; i <= m; i++) {
+	    double hi = 0.0;
+	    for (int k=0; k < row_index[i-1].length; k++) {
+		hi = Math.max(hi, row_scale[i-1]*row_value[i-1][k]*col_scale[row_index[i-1][k]-1]);
+	    }
+	    if (0.0 < hi) {
+		row_scale[i-1] = row_scale[i-1]/hi;
+	    }
+	}
+
+	double[] hi = new double[n];
+	for (int i=1; i <= m; i++) {
+	    for (int k=0; k < row_index[i-1].length; k++) {
+		int j = row_index[i-1][k];
+		hi[j-1] = Math.max(hi[j-1], row_scale[i-1]*row_value[i-1][k]*col_scale[j-1]);
+	    }
+	}
+	for (int j=1; j <= n; j++) {
+	    if (0.0 < hi[j-1]) {
+		col_scale[j-1] = col_scale[j-1]/hi[j-1];
+	    }
+	}
+    }
+
+
+    // max |a'| / min |a'| over the nonzeros of the scaled A
+    private double spread()
+    {
+	double lo = Double.POSITIVE_INFINITY;
+	double hi = 0.0;
+	for (int i=1; i <= original.rows; i++) {
+	    for (int k=0; k < row_index[i-1].length; k++) {
+		double v = row_scale[i-1]*row_value[i-1][k]*col_scale[row_index[i-1][k]-1];
+		lo = Math.min(lo, v);
+		hi = Math.max(hi, v);
+	    }
+	}
+
+	return (0.0 < hi) ? hi/lo : 1.0;
+    }
+
+
+    // the power of 2 nearest v, on a log scale
+    private static double power_of_2(double v)
+    {
+	int k = Math.getExponent(v);
+	double p = Math.scalb(1.0, k);
+
+	return (v < Math.sqrt(2.0)*p) ? p : 2.0*p;
+    }
+
+
+    private void build()
+    {
+	int m = original.rows;
+	int n = original.cols;
+
+	scaled = original.clone();
+
+	double[] v = new double[n];
+	for (int i=1; i <= m; i++) {
+	    original.get_row(i, v);
+	    for (int j=1; j <= n; j++) {
+		if (v[j-1] != 0.0) {
+		    scaled.set_a(i, j, row_scale[i-1]*v[j-1]*col_scale[j-1]);
+		}
+	    }
+	    scaled.b[i-1] = row_scale[i-1]*original.b[i-1];
+	}
+
+	for (int j=1; j <= n; j++) {
+	    scaled.c[j-1]     = col_scale[j-1]*original.c[j-1];
+	    scaled.lower[j-1] = original.lower[j-1]/col_scale[j-1];
+	    scaled.upper[j-1] = original.upper[j-1]/col_scale[j-1];
+	}
+    }
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Sifting: solves a linear program with far more columns than rows.  A
+ * basis holds no more columns than there are rows, so most columns are
+ * nonbasic at every vertex and need never enter the tableau.  A working
+ * master holds the rows and a subset of the columns; it is solved, every
+ * column of the full system is priced against the duals of its rows,
+ * and those that price out best are appended to the master, which is
+ * re-optimized from its last basis.  When no column prices out, the
+ * answer of the master is the answer of the full system.
+ *
+ * Only the master enters the tableau, so the cost of a pivot grows with
+ * the working columns, not with all of them.  The full system can be
+ * read sparse, so it is kept as its nonzeros column by column, and the
+ * pricing pass runs over the nonzeros alone.  Columns are not dropped
+ * from the master once in it.
+ *
+ * The first master takes every column with a lower bound other than
+ * zero, since a column left out sits at zero, and for each row the
+ * column of best cost with an entry in it.  It is filled up with the
+ * columns of best cost, which are those that price out against duals
+ * of zero.  While the master is infeasible, under Big M the columns are
+ * priced against the duals of the Big M costs, which favor the columns
+ * that reduce the infeasibility; failing that the next columns in order
+ * are brought in.
+ */
+public class Sifting {
+    public LinearProgram full    = null;
+    public LinearProgram master  = null;
+    public Simplex       simplex = null;
+    public int           initial    = 0;       // columns in the first master, 0 for twice the rows
+    public int           max_batch  = 0;       // columns added per round, 0 for one per row
+    public int           max_rounds = 1000;
+    public double        tolerance  = 1e-9;    // a reduced cost must beat this
+    public int           rounds = 0;
+    public int           added  = 0;           // columns added after the first master
+    public double[]      x      = null;        // the answer, over the columns of full
+    public double        Z      = 0;
+
+    int[]     col = null;                      // the column of full for each column of the master
+    boolean[] in  = null;                      // column j of full is in the master
+
+    public Sifting(LinearProgram full)
+    {
+	this.full = full;
+	in = new boolean[full.cols];
+	int[] first = first_columns();
+	master = new LinearProgram(full.rows, first.length);
+	master.minimize  = full.minimize;
+	master.obj_label = full.obj_label;
+	for (int i=1; i <= full.rows; i++) {
+	    master.set_b(i, full.get_b(i));
+	    master.set_e(i, full.get_e(i));
+	    master.row_labels[i-1] = full.row_labels[i-1];
+	}
+	double[] a = new double[full.rows];
+	col = new int[first.length];
+	for (int k=1; k <= first.length; k++) {
+	    int j = first[k-1];
+	    full.get_col(j, a);
+	    for (int i=1; i <= full.rows; i++) {
+		if (a[i-1] != 0.0) {
+		    master.set_a(i, k, a[i-1]);
+		}
+	    }
+	    master.set_c(k, full.get_c(j));
+	    master.lower[k-1]      = full.lower[j-1];
+	    master.upper[k-1]      = full.upper[j-1];
+	    master.col_labels[k-1] = full.col_labels[j-1];
+	    col[k-1] = j;
+	    in[j-1]  = true;
+	}
+	simplex = new Simplex(master);
+    }
+
+
+    // solve the master, then price the full system and re-optimize until
+    // no column prices out or max_rounds is reached
+    public Simplex.State solve(boolean minimize)
+    {
+	rounds = 0;
+	added  = 0;
+	master.minimize = minimize;
+	Simplex.State soln_type = simplex.optimize_system(minimize);
+	while (soln_type != Simplex.State.UNBOUNDED && rounds < max_rounds) {
+	    int[] batch = null;
+	    if (soln_type == Simplex.State.SOLUTION) {
+		batch = improving(simplex.dual, minimize);
+	    } else if (simplex.method == Simplex.Method.BIG_M && simplex.A != null) {
+		batch = improving(simplex.extract_duals(), minimize);
+		if (batch.length == 0) {
+		    batch = next_columns();
+		}
+	    } else {
+		batch = next_columns();
+	    }
+	    if (batch.length == 0) {
+		break;
+	    }
+
+	    rounds += 1;
+	    double[] a = new double[full.rows];
+	    col = Arrays.copyOf(col, col.length+batch.length);
+	    for (int j : batch) {
+		full.get_col(j, a);
+		master.add_col(false, master.cols, a, full.get_c(j), full.col_labels[j-1]);
+		master.lower[master.cols-1] = full.lower[j-1];
+		master.upper[master.cols-1] = full.upper[j-1];
+		col[master.cols-1] = j;
+		in[j-1] = true;
+	    }
+	    added += batch.length;
+	    soln_type = simplex.reoptimize();
+	    System.out.println("Sifting round "+rounds+": "+batch.length+" columns, Z = "+simplex.Z);
+	}
+
+	System.out.println("Sifting: "+rounds+" rounds, "+master.cols+" of "+full.cols+" columns in the master");
+
+	x = new double[full.cols];
+	for (int k=1; k <= master.cols; k++) {
+	    x[col[k-1]-1] = simplex.x[k-1];
+	}
+	Z = simplex.Z;
+
+	return soln_type;
+    }
+
+
+    // c[j] - y*a[j], over the nonzeros of column j of full
+    public double reduced_cost(int j, double[] y)
+    {
+	double d = full.get_c(j);
+	if (full.sparse != null) {
+	    int[]    ix = full.sparse.index[j-1];
+	    double[] v  = full.sparse.value[j-1];
+	    for (int k=0; k < full.sparse.count[j-1]; k++) {
+		d -= y[ix[k]]*v[k];
+	    }
+	} else {
+	    for (int i=1; i <= full.rows; i++) {
+		d -= y[i-1]*full.a[i-1][j-1];
+	    }
+	}
+
+	return d;
+    }
+
+
+    // the columns outside the master that price out against y, most
+    // improving first, at most max_batch of them
+    private int[] improving(double[] y, boolean minimize)
+    {
+	int most = (0 < max_batch) ? max_batch : Math.max(full.rows, 1);
+	double[] gain = new double[full.cols];
+	int n = 0;
+	for (int j=1; j <= full.cols; j++) {
+	    if (! in[j-1]) {
+		double d = reduced_cost(j, y);
+		gain[j-1] = minimize ? -d : d;
+		n += (tolerance < gain[j-1]) ? 1 : 0;
+	    }
+	}
+
+	return best(gain, Math.min(n, most));
+    }
+
+
+    // the k columns outside the master of greatest score, greatest first
+    private int[] best(double[] score, int k)
+    {
+	Integer[] order = new Integer[full.cols-master.cols];
+	int n = 0;
+	for (int j=1; j <= full.cols; j++) {
+	    if (! in[j-1]) {
+		order[n++] = j;
+	    }
+	}
+	Arrays.sort(order, 0, n, (p, q) -> Double.compare(score[q-1], score[p-1]));
+
+	int[] r = new int[Math.min(k, n)];
+	for (int q=1; q <= r.length; q++) {
+	    r[q-1] = order[q-1];
+	}
+
+	return r;
+    }
+
+
+    // the next max_batch columns outside the master, in order
+    private int[] next_columns()
+    {
+	int most = (0 < max_batch) ? max_batch : Math.max(full.rows, 1);
+	List<Integer> r = new ArrayList<Integer>();
+	for (int j=1; j <= full.cols && r.size() < most; j++) {
+	    if (! in[j-1]) {
+		r.add(j);
+	    }
+	}
+
+	int[] batch = new int[r.size()];
+	for (int q=1; q <= batch.length; q++) {
+	    batch[q-1] = r.get(q-1);
+	}
+
+	return batch;
+    }
+
+
+    // the columns of the first master, in the order of full
+    private int[] first_columns()
+    {
+	int size = (0 < initial) ? initial : 2*full.rows;
+	double[] score = new double[full.cols];
+	for (int j=1; j <= full.cols; j++) {
+	    score[j-1] = full.minimize ? -full.get_c(j) : full.get_c(j);
+	}
+
+	// bounded away from zero, and the best column of each row
+	boolean[] pick = new boolean[full.cols];
+	int[] cover = new int[full.rows];
+	double[] a = new double[full.rows];
+	for (int j=1; j <= full.cols; j++) {
+	    pick[j-1] = full.lower[j-1] != 0.0;
+	    full.get_col(j, a);
+	    for (int i=1; i <= full.rows; i++) {
+		if (a[i-1] != 0.0 && (cover[i-1] == 0 || score[cover[i-1]-1] < score[j-1])) {
+		    cover[i-1] = j;
+		}
+	    }
+	}
+	for (int i=1; i <= full.rows; i++) {
+	    if (cover[i-1] != 0) {
+		pick[cover[i-1]-1] = true;
+	    }
+	}
+	int n = 0;
+	for (int j=1; j <= full.cols; j++) {
+	    n += pick[j-1] ? 1 : 0;
+	}
+
+	// then the best of the rest
+	if (n < size) {
+	    Integer[] order = new Integer[full.cols-n];
+	    int k = 0;
+	    for (int j=1; j <= full.cols; j++) {
+		if (! pick[j-1]) {
+		    order[k++] = j;
+		}
+	    }
+	    Arrays.sort(order, (p, q) -> Double.compare(score[q-1], score[p-1]));
+	    for (int q=1; q <= Math.min(size-n, order.length); q++) {
+		pick[order[q-1]-1] = true;
+	    }
+	}
+
+	int[] r = new int[full.cols];
+	n = 0;
+	for (int j=1; j <= full.cols; j++) {
+	    if (pick[j-1]) {
+		r[n++] = j;
+	    }
+	}
+
+	return Arrays.copyOf(r, n);
+    }
+}
@@ -27,17 +27,26 @@
  * THE POSSIBILITY OF SUCH DAMAGE.                                             *
  *******************************************************************************/
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 public class Simplex {
     public enum State {SOLUTION, NO_SOLUTION, UNBOUNDED};
+    public enum Method {BIG_M, TWO_PHASE};
 
 
     LinearProgram     system = null;
 
-    public double[][] A = null;
+    public Tableau    A = null;
     public double[]   B = null;
     public double[]   C = null;
     public double[]   x = null;
     public double     Z = 0;
+
+    // the dual value of each row, dZ/db[i], once there is a solution
+    public double[]   dual = null;
     
     public int augmented_rows = 0;
     public int augmented_cols = 0;
@@ -47,26 +56,824 @@ public class Simplex {
     public int[] artificial_variables = null;
     public int[] basic_variables      = null;
 
+    // bounds: every column is shifted by its lower bound, so it runs
+    // from 0 to range; a flipped column stands for range minus itself,
+    // which is how a variable sits at its upper bound
+    public double[]  range       = null;
+    public boolean[] flipped     = null;
+    public boolean   bounded     = false;
+    public int       bound_flips = 0;
+
+    // layout of the slack, surplus and artificial columns, so engines
+    // that do not keep a tableau can rebuild any augmented column
+    public int[]    aux_row  = null;
+    public double[] aux_coef = null;
+    public double   M        = 0;
+    public double   big_m    = 0;       // M to use, if set, instead of one sized from the system
+    boolean         minimize = false;
+    double[]        row_sign = null;    // -1 for a row negated to make b >= 0
+    int[]           unit_col = null;    // the column basic in row i at the start
+
+    // BIG_M folds a penalty on the artificial variables into the costs;
+    // TWO_PHASE first minimizes the sum of the artificial variables
+    // (phase 1), then drops them and optimizes the true costs (phase 2).
+    // Under BIG_M phase1_iterations counts the pivots made while an
+    // artificial variable was still basic.
+    public Method method            = Method.BIG_M;
+    public int    phase             = 0;
+    public int    iterations        = 0;
+    public int    phase1_iterations = 0;
+    public double primal_tolerance  = 1.0e-9;
+    public double dual_tolerance    = 1.0e-9;
+    public double pivot_tolerance   = 1.0e-9;
+
+    // the rule that chooses the entering column
+    public Pricing pricing = new DantzigPricing();
+
+    // the inner loops of a pivot, vectorized when the JVM allows it
+    public Kernels kernels = Kernels.get();
+
+    // the Harris ratio test, and the fall back on Bland's rule after
+    // stall_limit pivots in a row that leave the objective unchanged
+    public boolean harris      = true;
+    public int     stall_limit = 50;
+    public int     stalls      = 0;
+    int            stalled     = 0;
+    Pricing        saved       = null;
+
+    // with an executor, the rows of a tableau holding at least
+    // parallel_threshold entries are eliminated in parallel, in blocks
+    // of at least parallel_grain entries.  Every row is updated by the
+    // same operations either way, so the results are identical.
+    public ForkJoinPool executor           = null;
+    public long         parallel_threshold = 1L << 16;
+    public long         parallel_grain     = 1L << 13;
+
+    // the pivots that brought a start basis in, and the smallest entry
+    // a start basis column may be pivoted in on
+    public int    start_pivots      = 0;
+    public double install_tolerance = 1.0e-7;
+    public double cost_shift        = 1.0e-6;
+
+    // with crash, optimize_system pivots structural columns in for the
+    // artificial variables before the simplex starts (crash_basis)
+    public boolean crash        = false;
+    public int     crash_pivots = 0;
+
+    // keep the tableau off the Java heap, in direct buffers, or in a
+    // file mapped into memory when scratch names a directory for it
+    public boolean off_heap = false;
+    public File    scratch  = null;
+
+    // print the whole tableau at each step; on large problems the
+    // printing costs far more than the pivots
+    public boolean verbose = true;
+
+    private double[] col = null;
+
     public Simplex(LinearProgram s)
     {
 	system = s;
     }
+
+
+    // take the settings of s, but not its problem or solution
+    public void settings_from(Simplex s)
+    {
+	method             = s.method;
+	pricing            = s.pricing;
+	primal_tolerance   = s.primal_tolerance;
+	dual_tolerance     = s.dual_tolerance;
+	pivot_tolerance    = s.pivot_tolerance;
+	harris             = s.harris;
+	stall_limit        = s.stall_limit;
+	executor           = s.executor;
+	parallel_threshold = s.parallel_threshold;
+	parallel_grain     = s.parallel_grain;
+	kernels            = s.kernels;
+	off_heap           = s.off_heap;
+	scratch            = s.scratch;
+	verbose            = s.verbose;
+	crash              = s.crash;
+    }
 	
 
     public State optimize_system(boolean minimize)
     {
-	setup_system(minimize);
+	if (! setup_system(minimize)) {
+	    return State.NO_SOLUTION;
+	}
+	crash_pivots = 0;
+	if (crash) {
+	    crash_basis();
+	}
+	pricing.reset(this);
+	stalls  = 0;
+	stalled = 0;
 	    
 	System.out.println("Setup minimize="+minimize);
 	System.out.printf("extras = %d\n", extras);
+	if (crash) {
+	    System.out.println("crash basis = "+crash_pivots+" pivots, "+art_var_ct+" artificials left");
+	}
 	print_system();
 	System.out.println();
 
 	State soln_type = simplex();
+	if (soln_type == State.SOLUTION && phase == 1) {
+	    soln_type = phase_two();
+	}
+
+	soln_type = extract_solution(soln_type);
+	    
+	System.out.println("Optimized");
+	print_iterations();
+	print_system();
+	System.out.println();
+	
+	return soln_type;
+    }
+
+
+    // Solve from a starting basis.  start lists the variables wanted in
+    // the basis, most wanted first: j > 0 for column j of the system and
+    // -i for the slack or surplus of row i.  Each is pivoted in on a row
+    // not yet claimed by an earlier one, if its entry there is large
+    // enough.  finish() completes the solve from the basis that results.
+    public State optimize_from(boolean minimize, int[] start)
+    {
+	return optimize_from(minimize, start, new int[0]);
+    }
+
+
+    // solve from the basis of an earlier solve, see Basis
+    public State optimize_from(boolean minimize, Basis basis)
+    {
+	return optimize_from(minimize, basis.start(system), basis.upper(system));
+    }
+
+
+    // as above, with the nonbasic columns listed in upper starting at
+    // their upper bound
+    public State optimize_from(boolean minimize, int[] start, int[] upper)
+    {
+	if (! setup_system(minimize)) {
+	    return State.NO_SOLUTION;
+	}
+	pricing.reset(this);
+	stalls  = 0;
+	stalled = 0;
+
+	System.out.println("Setup minimize="+minimize+" (start basis)");
+	System.out.printf("extras = %d\n", extras);
+
+	for (int k=0; k < upper.length; k++) {
+	    int j = upper[k];
+	    if (1 <= j && j <= system.cols && range[j-1] != Double.POSITIVE_INFINITY && ! flipped[j-1]) {
+		complement_col(j);
+	    }
+	}
+	int n = install_basis(start);
+	System.out.println("start basis = "+n+" of "+start.length+" ("+start_pivots+" pivots)");
+	print_system();
+	System.out.println();
+
+	State soln_type = finish("start basis");
+
+	soln_type = extract_solution(soln_type);
+
+	System.out.println("Optimized");
+	print_iterations();
+	print_system();
+	System.out.println();
+
+	return soln_type;
+    }
+
+
+    // Finish a solve from the current basis: with the primal simplex if
+    // it is primal feasible, with the dual simplex if it is dual feasible.
+    // If it is neither, the reduced costs that are negative are shifted up
+    // to small positive values, different for each column so the dual
+    // simplex does not stall on ties, and after the dual simplex the true
+    // costs are priced again for the primal simplex to finish.  In phase 1
+    // the same is done with the phase 1 costs, and phase 2 follows; those
+    // costs are mostly zero, so the zero reduced costs of the nonbasic
+    // columns are shifted too, or the dual simplex cycles on the ties.
+    private State finish(String what)
+    {
+	// outside phase 1 an artificial is only feasible at zero
+	boolean primal = true;
+	for (int i=1; i <= augmented_rows; i++) {
+	    if (B[i-1] < -primal_tolerance || range[Math.abs(basic_variables[i-1])-1]+primal_tolerance < B[i-1]) {
+		primal = false;
+	    } else if (phase != 1 && basic_variables[i-1] < 0 && primal_tolerance < B[i-1]) {
+		primal = false;
+	    } else if (B[i-1] < 0.0) {
+		B[i-1] = 0.0;
+	    }
+	}
+	boolean dual = true;
+	for (int j=1; j <= augmented_cols; j++) {
+	    if (eligible(j) && C[j-1] < -dual_tolerance) {
+		dual = false;
+	    }
+	}
+
+	State soln_type;
+	if (primal) {
+	    soln_type = simplex();
+	} else if (dual && phase != 1) {
+	    soln_type = dual_simplex();
+	    if (soln_type == State.SOLUTION) {
+		soln_type = simplex();
+	    }
+	} else {
+	    if (! dual) {
+		System.out.println(what+" is neither primal nor dual feasible, shifting costs");
+	    }
+	    boolean[] basic = new boolean[augmented_cols];
+	    for (int i=1; i <= augmented_rows; i++) {
+		basic[Math.abs(basic_variables[i-1])-1] = true;
+	    }
+	    double floor = (phase == 1) ? cost_shift : 0.0;
+	    for (int j=1; j <= augmented_cols; j++) {
+		if (eligible(j) && ! basic[j-1] && C[j-1] < floor) {
+		    C[j-1] = cost_shift*(1.0+(j*0.6180339887)%1.0);
+		}
+	    }
+	    soln_type = dual_simplex();
+	    reprice();
+	    if (soln_type == State.SOLUTION) {
+		soln_type = simplex();
+	    }
+	}
+	if (soln_type == State.SOLUTION && phase == 1) {
+	    soln_type = phase_two();
+	}
+
+	return soln_type;
+    }
+
+
+    // pivot the variables of start into the basis, as in optimize_from,
+    // returning how many are basic afterwards.  Each goes in on a row
+    // still holding an artificial if it can, since those have to go, and
+    // on the largest entry among them.  A row start leaves unclaimed that
+    // still has its artificial basic then takes its own slack or surplus
+    // instead, where it can, so it does not hold the basis infeasible (a
+    // row added since the start basis was saved, say).
+    int install_basis(int[] start)
+    {
+	start_pivots = 0;
+	boolean[] claimed = new boolean[augmented_rows];
+
+	int n = 0;
+	for (int k=0; k < start.length; k++) {
+	    int j = (0 < start[k]) ? start[k] : slack_column(-start[k]);
+	    if (j < 1 || augmented_cols < j || ! eligible(j)) {
+		continue;
+	    }
+
+	    int pr = 0;
+	    for (int i=1; i <= augmented_rows; i++) {
+		if (basic_variables[i-1] == j && ! claimed[i-1]) {
+		    pr = i;
+		}
+	    }
+	    if (pr == 0) {
+		double e = install_tolerance;
+		boolean artificial = false;
+		for (int i=1; i <= augmented_rows; i++) {
+		    double f = Math.abs(A.get(i-1, j-1));
+		    boolean a = basic_variables[i-1] < 0;
+		    if (! claimed[i-1] && install_tolerance < f && ((a && ! artificial) || (a == artificial && e < f))) {
+			pr = i;
+			e = f;
+			artificial = a;
+		    }
+		}
+		if (pr == 0) {
+		    continue;
+		}
+		lp_update(pr, j);
+		start_pivots++;
+	    }
+	    claimed[pr-1] = true;
+	    n++;
+	}
+
+	for (int i=1; i <= augmented_rows; i++) {
+	    int j = slack_column(i);
+	    if (! claimed[i-1] && basic_variables[i-1] < 0 && j != 0 && install_tolerance < Math.abs(A.get(i-1, j-1))) {
+		lp_update(i, j);
+		start_pivots++;
+	    }
+	}
+
+	return n;
+    }
+
+
+    // Triangular crash: replace as many basic artificials as it can with
+    // structural columns before the first pivot.  Columns are tried in
+    // order of how few artificial rows they touch, so the sparse ones go
+    // first.  Column j goes in on artificial row i only if it is zero in
+    // the rows already crashed, so the crashed columns form a triangle
+    // and do not disturb each other, and only if row i passes the ratio
+    // test (and the bound test), so the basis stays feasible.
+    int crash_basis()
+    {
+	crash_pivots = 0;
+	if (art_var_ct == 0) {
+	    return 0;
+	}
+	if (col == null || col.length != augmented_rows) {
+	    col = new double[augmented_rows];
+	}
+
+	int[] count = new int[system.cols];
+	int n = 0;
+	for (int j=1; j <= system.cols; j++) {
+	    column(j, col);
+	    for (int i=1; i <= augmented_rows; i++) {
+		if (basic_variables[i-1] < 0 && pivot_tolerance < Math.abs(col[i-1])) {
+		    count[j-1]++;
+		}
+	    }
+	    if (0 < count[j-1]) {
+		n++;
+	    }
+	}
+	Integer[] order = new Integer[n];
+	n = 0;
+	for (int j=1; j <= system.cols; j++) {
+	    if (0 < count[j-1]) {
+		order[n++] = j;
+	    }
+	}
+	Arrays.sort(order, (p, q) -> count[p-1]-count[q-1]);
+
+	boolean[] crashed = new boolean[augmented_rows];
+	for (int k=0; k < n && 0 < art_var_ct; k++) {
+	    int j = order[k];
+	    column(j, col);
+
+	    boolean triangular = true;
+	    for (int i=1; i <= augmented_rows && triangular; i++) {
+		triangular = ! crashed[i-1] || Math.abs(col[i-1]) <= pivot_tolerance;
+	    }
+	    if (! triangular) {
+		continue;
+	    }
+
+	    // the largest entry on an artificial row within the ratio bound
+	    double bound = kernels.ratio_bound(B, col, augmented_rows, pivot_tolerance, 0.0);
+	    int pr = 0;
+	    double e = pivot_tolerance;
+	    for (int i=1; i <= augmented_rows; i++) {
+		if (basic_variables[i-1] < 0 && e < col[i-1] && B[i-1]/col[i-1] <= bound) {
+		    pr = i;
+		    e = col[i-1];
+		}
+	    }
+	    if (pr == 0 || (bounded && bound_test(j, pr) != 0)) {
+		continue;
+	    }
+
+	    lp_update(pr, j);
+	    crashed[pr-1] = true;
+	    crash_pivots++;
+	}
+
+	return crash_pivots;
+    }
+
+
+    // the slack or surplus column of row i, or 0 for an equality
+    public int slack_column(int i)
+    {
+	for (int k=system.cols+1; k <= augmented_cols; k++) {
+	    if (aux_row[k-1] == i && 0 < artificial_variables[k-1]) {
+		return k;
+	    }
+	}
+
+	return 0;
+    }
+
+
+    // Re-optimize after rows have been appended to the system, either with
+    // add_row below or with LinearProgram.add_row after the last row.  The
+    // final basis of the previous solve is still dual feasible, so the new
+    // rows are brought into the tableau in terms of that basis, each with
+    // its own slack basic, and the dual simplex restores primal feasibility.
+    // Columns appended, with add_col or with LinearProgram.add_col after
+    // the last column, come in nonbasic, so the basis stays primal
+    // feasible and the primal simplex brings in those that price out.
+    // With both, finish() decides.
+    public State reoptimize()
+    {
+	if (A == null) {
+	    System.err.println("No Solution: no tableau to re-optimize");
+	    return State.NO_SOLUTION;
+	}
+	// each new row brings its own slack, surplus or artificial column
+	int new_rows = system.rows-augmented_rows;
+	int new_cols = system.cols-(augmented_cols-extras);
+	if (! A.fits(system.rows, augmented_cols+new_cols+new_rows)) {
+	    System.err.println("No Solution: a "+system.rows+" x "+(augmented_cols+new_cols+new_rows)+" tableau is too large for the heap, use -off-heap");
+	    return State.NO_SOLUTION;
+	}
+
+	if (augmented_cols-extras < system.cols) {
+	    append_cols(augmented_cols-extras);
+	}
+	for (int i=augmented_rows+1; i <= system.rows; i++) {
+	    append_row(i);
+	}
+
+	System.out.println("Reoptimize rows="+augmented_rows);
+
+	State soln_type = finish("basis");
+
+	soln_type = extract_solution(soln_type);
+
+	System.out.println("Optimized");
+	print_iterations();
+	print_system();
+	System.out.println();
+
+	return soln_type;
+    }
+
+
+    // append a constraint to the system and to the final tableau
+    public void add_row(double[] a_r, double b_r, LinearProgram.Equality e_r, String label)
+    {
+	system.add_row(false, system.rows, a_r, b_r, e_r, label);
+	append_row(system.rows);
+    }
+
+
+    // append a variable to the system and a nonbasic column to the final
+    // tableau; reoptimize() then prices it
+    public void add_col(double[] a_c, double c_c, String label)
+    {
+	system.add_col(false, system.cols, a_c, c_c, label);
+	append_cols(augmented_cols-extras);
+    }
+
+
+    // Bring the system columns after the first n0, appended since the
+    // tableau was built, into the tableau in terms of the current basis.
+    // They go in ahead of the slack, surplus and artificial columns, which
+    // are renumbered.  The column of each row's starting basic variable
+    // (unit_col) holds B^-1 in the tableau, so a new column is B^-1 times
+    // the system column, written the way the rows of the tableau are.
+    private void append_cols(int n0)
+    {
+	int k = system.cols-n0;
+	int m = augmented_rows;
+	int n = augmented_cols+k;
+
+	A.insert_cols(n0, k);
+	int[]     av = new int[n];
+	int[]     ar = new int[n];
+	double[]  ac = new double[n];
+	double[]  rg = new double[n];
+	boolean[] fl = new boolean[n];
+	double[]  c  = new double[n];
+	for (int q=1; q <= n; q++) {
+	    int p = (q <= n0) ? q : (q <= n0+k) ? 0 : q-k;     // the old column, if any
+	    if (p == 0) {
+		av[q-1] = q;
+		rg[q-1] = system.upper[q-1]-system.lower[q-1];
+		bounded = bounded || rg[q-1] != Double.POSITIVE_INFINITY;
+	    } else {
+		av[q-1] = renumber(artificial_variables[p-1], n0, k);
+		ar[q-1] = aux_row[p-1];
+		ac[q-1] = aux_coef[p-1];
+		rg[q-1] = range[p-1];
+		fl[q-1] = flipped[p-1];
+		c[q-1]  = C[p-1];
+	    }
+	}
+	artificial_variables = av;
+	aux_row              = ar;
+	aux_coef             = ac;
+	range                = rg;
+	flipped              = fl;
+	C                    = c;
+	for (int i=1; i <= m; i++) {
+	    basic_variables[i-1] = renumber(basic_variables[i-1], n0, k);
+	    unit_col[i-1]        = renumber(unit_col[i-1], n0, k);
+	}
+	x = Arrays.copyOf(x, system.cols);
+	augmented_cols = n;
+
+	double[] a = new double[system.rows];
+	for (int j=n0+1; j <= system.cols; j++) {
+	    // the system column, as the tableau rows hold it: a row with
+	    // a negative b was negated by setup_layout, which the new
+	    // column must be too, and a surplus row appended by append_row
+	    // was flipped
+	    system.get_col(j, a);
+	    for (int r=1; r <= m; r++) {
+		if (row_sign[r-1] < 0.0 && a[r-1] != 0.0) {
+		    a[r-1] = -a[r-1];
+		    system.set_a(r, j, a[r-1]);
+		}
+		a[r-1] = a[r-1]/aux_coef[unit_col[r-1]-1];
+	    }
+
+	    double cj = augmented_cost(j);
+	    for (int i=1; i <= m; i++) {
+		double v = 0.0;
+		for (int r=1; r <= m; r++) {
+		    if (a[r-1] != 0.0) {
+			v += A.get(i-1, unit_col[r-1]-1)*a[r-1];
+		    }
+		}
+		A.set(i-1, j-1, v);
+		if (v != 0.0) {
+		    int h = Math.abs(basic_variables[i-1]);
+		    cj -= v*(flipped[h-1] ? -augmented_cost(h) : augmented_cost(h));
+		    B[i-1] -= v*system.lower[j-1];
+		}
+	    }
+	    C[j-1] = cj;
+	}
+
+	// the new columns may pivot out artificials phase two had left
+	// basic at zero, and the pricing weights are renumbered
+	if (phase == 2) {
+	    drive_out_artificials();
+	}
+	pricing.reset(this);
+	if (saved != null) {
+	    saved.reset(this);
+	}
+    }
+
+
+    // column index v (negative for an artificial) after k columns are
+    // inserted after column n0
+    private static int renumber(int v, int n0, int k)
+    {
+	if (n0 < Math.abs(v)) {
+	    return (v < 0) ? v-k : v+k;
+	}
+
+	return v;
+    }
+
+
+    // bring system row r into the tableau as a new last row, written in
+    // terms of the current basis, with a new slack (LE), surplus (GE) or
+    // artificial (EQ) column as its basic variable
+    private void append_row(int r)
+    {
+	int m = augmented_rows+1;
+	int n = augmented_cols+1;
+
+	double[] row = new double[n];
+
+	// shift and flip the row the way the columns are, then
+	// eliminate the basic variables from it
+	double rhs = system.b[r-1];
+	system.get_row(r, row);
+	for (int j=1; j <= system.cols; j++) {
+	    if (row[j-1] != 0.0 && system.lower[j-1] != 0.0) {
+		rhs = rhs-row[j-1]*system.lower[j-1];
+	    }
+	    if (row[j-1] != 0.0 && flipped[j-1]) {
+		rhs = rhs-row[j-1]*range[j-1];
+		row[j-1] = -row[j-1];
+	    }
+	}
+	for (int i=1; i < m; i++) {
+	    int h = Math.abs(basic_variables[i-1]);
+	    if (h <= system.cols && row[h-1] != 0.0) {
+		double aux = row[h-1];
+		A.sub_row_from(kernels, row, i-1, aux);
+		rhs = rhs-aux*B[i-1];
+	    }
+	}
+	for (int i=1; i < m; i++) {
+	    row[Math.abs(basic_variables[i-1])-1] = 0.0;
+	}
+
+	// a surplus enters with -1, so flip the row to make it basic
+	LinearProgram.Equality e_r = system.e[r-1];
+	if (e_r == LinearProgram.Equality.GE) {
+	    for (int j=1; j < n; j++) {
+		row[j-1] = -row[j-1];
+	    }
+	    rhs = -rhs;
+	}
+	row[n-1] = 1.0;
+
+	A.resize(m, n);
+	A.set_row(m-1, row, n);
+	B = Arrays.copyOf(B, m);
+	C = Arrays.copyOf(C, n);
+	basic_variables      = Arrays.copyOf(basic_variables, m);
+	artificial_variables = Arrays.copyOf(artificial_variables, n);
+	aux_row              = Arrays.copyOf(aux_row, n);
+	aux_coef             = Arrays.copyOf(aux_coef, n);
+	range                = Arrays.copyOf(range, n);
+	flipped              = Arrays.copyOf(flipped, n);
+	row_sign             = Arrays.copyOf(row_sign, m);
+	unit_col             = Arrays.copyOf(unit_col, m);
+	range[n-1]           = Double.POSITIVE_INFINITY;
+	row_sign[m-1]        = 1.0;
+	unit_col[m-1]        = n;
+
+	B[m-1]        = rhs;
+	C[n-1]        = 0.0;
+	aux_row[n-1]  = r;
+	aux_coef[n-1] = (e_r == LinearProgram.Equality.GE) ? -1.0 : 1.0;
+	if (e_r == LinearProgram.Equality.EQ) {
+	    artificial_variables[n-1] = -n;
+	    basic_variables[m-1]      = -n;
+	    art_var_ct++;
+	} else {
+	    artificial_variables[n-1] = n;
+	    basic_variables[m-1]      = n;
+	}
+
+	augmented_rows = m;
+	augmented_cols = n;
+	extras        += 1;
+    }
+
+
+    // the dual simplex: the reduced costs stay non-negative while the
+    // most infeasible basic variable leaves on each pivot
+    private State dual_simplex()
+    {
+	for (int pr=dual_pivot_row(); pr != 0; pr=dual_pivot_row()) {
+	    if (range[Math.abs(basic_variables[pr-1])-1] < B[pr-1]) {
+		// above its upper bound, it leaves at that bound
+		complement_row(pr);
+	    }
+	    int pc = dual_pivot_col(pr);
+
+	    System.out.println("dual pivot=("+pr+","+pc+")");
+
+	    if (pc == 0) {
+		// no column can repair row pr, the new rows are infeasible
+		return State.NO_SOLUTION;
+	    }
+
+	    iterations++;
+	    update_pricing(pr, pc);
+	    lp_update(pr, pc);
+
+	    print_system();
+	    System.out.println();
+	}
+
+	return State.SOLUTION;
+    }
+
+
+    // the row whose basic variable is furthest outside its bounds:
+    // negative or above its range, or for an artificial variable,
+    // anything but zero, by more than the primal tolerance
+    private int dual_pivot_row()
+    {
+	int j = 0;
+	double e = primal_tolerance;
+	for (int i=1; i <= augmented_rows; i++) {
+	    double f = -B[i-1];
+	    double r = range[Math.abs(basic_variables[i-1])-1];
+	    if (basic_variables[i-1] < 0) {
+		f = Math.abs(B[i-1]);
+	    } else if (r+primal_tolerance < B[i-1]) {
+		f = B[i-1]-r;
+	    }
+	    if (f > e) {
+		j = i;
+		e = f;
+	    }
+	}
+
+	return j;
+    }
+
+
+    // the column that keeps the reduced costs non-negative when it
+    // replaces the basic variable of row pr
+    private int dual_pivot_col(int pr)
+    {
+	double s = (B[pr-1] < 0.0) ? -1.0 : 1.0;
+
+	int j = 0;
+	double e = 0.0;
+	for (int k=1; k <= augmented_cols; k++) {
+	    double g = s*A.get(pr-1, k-1);
+	    if (g > pivot_tolerance && 0 < artificial_variables[k-1]) {
+		double h = max(C[k-1], 0.0)/g;
+		if (h < e || j == 0) {
+		    j = k;
+		    e = h;
+		}
+	    }
+	}
+
+	return j;
+    }
+
+
+    // end phase 1: if the artificial variables are all zero, pivot out
+    // those still basic where the row allows it, then price the true
+    // costs and continue the simplex
+    private State phase_two()
+    {
+	phase1_iterations = iterations;
+
+	for (int i=1; i <= augmented_rows; i++) {
+	    if (basic_variables[i-1] < 0 && primal_tolerance < B[i-1]) {
+		return State.NO_SOLUTION;
+	    }
+	}
+
+	drive_out_artificials();
+
+	phase = 2;
+	reprice();
+
+	System.out.println("Phase 2");
+	print_system();
+	System.out.println();
+
+	return simplex();
+    }
+
+
+    // pivot the artificials left basic, at zero, out of the basis where
+    // any other column has an entry in their row; in phase 2 they cost
+    // nothing, so they must not be left to grow
+    private void drive_out_artificials()
+    {
+	for (int i=1; i <= augmented_rows; i++) {
+	    if (basic_variables[i-1] < 0) {
+		int j = 0;
+		double e = primal_tolerance;
+		for (int k=1; k <= augmented_cols; k++) {
+		    if (0 < artificial_variables[k-1] && e < Math.abs(A.get(i-1, k-1))) {
+			j = k;
+			e = Math.abs(A.get(i-1, k-1));
+		    }
+		}
+		if (j != 0) {
+		    update_pricing(i, j);
+		    lp_update(i, j);
+		}
+	    }
+	}
+    }
+
+
+    // C = the costs of the current phase, less those of the basis times
+    // the tableau
+    void reprice()
+    {
+	for (int j=1; j <= augmented_cols; j++) {
+	    C[j-1] = flipped[j-1] ? -augmented_cost(j) : augmented_cost(j);
+	}
+	for (int i=1; i <= augmented_rows; i++) {
+	    int h = Math.abs(basic_variables[i-1]);
+	    double cb = flipped[h-1] ? -augmented_cost(h) : augmented_cost(h);
+	    if (cb != 0.0) {
+		A.sub_row_from(kernels, C, i-1, cb);
+	    }
+	}
+    }
+
+
+    void print_iterations()
+    {
+	String flips = (0 < bound_flips) ? " ("+bound_flips+" bound flips)" : "";
+	if (crash) {
+	    System.out.println("iterations = "+iterations+" (phase 1 = "+phase1_iterations+", crash = "+crash_pivots+")"+flips);
+	} else if (method == Method.TWO_PHASE) {
+	    System.out.println("iterations = "+iterations+" (phase 1 = "+phase1_iterations+")"+flips);
+	} else {
+	    System.out.println("iterations = "+iterations+flips);
+	}
+    }
 
+
+    // check for artificial variables left in the basis, then read x and Z
+    // out of the basic variables
+    State extract_solution(State soln_type)
+    {
 	if (soln_type == State.SOLUTION || soln_type == State.UNBOUNDED) {
 	    for (int i=1; i <= system.rows; i++) {
-		if (basic_variables[i-1] < 0 && 0.0 < B[i-1]) {
+		if (basic_variables[i-1] < 0 && primal_tolerance < B[i-1]) {
 		    if (0 < art_var_ct) {
 			soln_type = State.NO_SOLUTION;
 		    } else {
@@ -78,45 +885,174 @@ public class Simplex {
 	}
 
 	Z = 0;
+	boolean[] basic = new boolean[system.cols];
 	for (int i=1; i <= system.rows; i++) {
 	    int j = basic_variables[i-1];
 	    if (1 <= j && j <= system.cols) {
+		basic[j-1] = true;
 		if (soln_type == State.NO_SOLUTION) {
 		    x[j-1] = 0.0;
 		} else {
-		    x[j-1] = B[i-1];
+		    x[j-1] = column_value(j, B[i-1]);
 		    Z += system.c[j-1]*x[j-1];
 		}
 	    }
 	}
-	    
-	System.out.println("Optimized");
-	print_system();
-	System.out.println();
-	
+
+	// the nonbasic columns sit at one of their bounds
+	for (int j=1; j <= system.cols; j++) {
+	    if (! basic[j-1]) {
+		x[j-1] = (soln_type == State.NO_SOLUTION) ? 0.0 : column_value(j, 0.0);
+		if (x[j-1] != 0.0) {
+		    Z += system.c[j-1]*x[j-1];
+		}
+	    }
+	}
+
+	dual = (soln_type == State.SOLUTION) ? extract_duals() : null;
+
 	return soln_type;
     }
 
 
+    // The dual value of row i, from the reduced cost of one of its slack,
+    // surplus or artificial columns k: C[k] = cost[k] - y[i]*aux_coef[k],
+    // where y = c_B*B^-1 are the duals of the minimization solved.  A
+    // slack or surplus is used where there is one, since the cost of an
+    // artificial is the Big M penalty.
+    double[] extract_duals()
+    {
+	double[] y = new double[system.rows];
+	boolean[] seen = new boolean[system.rows];
+	for (int pass=1; pass <= 2; pass++) {
+	    for (int k=system.cols+1; k <= augmented_cols; k++) {
+		int i = aux_row[k-1];
+		if (seen[i-1] || (pass == 1) != (0 < artificial_variables[k-1])) {
+		    continue;
+		}
+		double v = (augmented_cost(k)-C[k-1])/aux_coef[k-1];
+		y[i-1] = row_sign[i-1]*(minimize ? v : -v);
+		seen[i-1] = true;
+	    }
+	}
+
+	return y;
+    }
+
+
+    // the value of column j of the system when its shifted, and maybe
+    // flipped, variable in the tableau is v
+    double column_value(int j, double v)
+    {
+	if (flipped[j-1]) {
+	    v = range[j-1]-v;
+	}
+
+	return (system.lower[j-1] == 0.0) ? v : system.lower[j-1]+v;
+    }
+
+
     // LHS    RHS
     // Ax  <= b
-    private void setup_system(boolean minimize)
+    private boolean setup_system(boolean minimize)
+    {
+	// a column is shifted by its lower bound, so it must have one, as
+	// LinearProgram.read() requires; bound_rows() splits free columns
+	for (int j=1; j <= system.cols; j++) {
+	    if (system.lower[j-1] == Double.NEGATIVE_INFINITY) {
+		System.err.println("No Solution: the lower bound of "+system.col_labels[j-1]+" must be finite");
+		return false;
+	    }
+	}
+	setup_layout(minimize);
+	for (int j=1; j <= system.cols; j++) {
+	    if (range[j-1] < 0.0) {
+		System.err.println("No Solution: the bounds of "+system.col_labels[j-1]+" are inconsistent");
+		return false;
+	    }
+	}
+
+	release();
+	if (off_heap) {
+	    A = OffHeapTableau.allocate(augmented_rows, augmented_cols, scratch);
+	    if (A == null) {
+		return false;
+	    }
+	} else {
+	    A = Tableau.acquire(augmented_rows, augmented_cols);
+	    if (A == null) {
+		return false;
+	    }
+	}
+	if (system.sparse == null) {
+	    for (int i=1; i <= augmented_rows; i++) {
+		A.set_row(i-1, system.a[i-1], system.cols);
+	    }
+	} else {
+	    SparseMatrix s = system.sparse;
+	    for (int j=0; j < s.cols; j++) {
+		for (int k=0; k < s.count[j]; k++) {
+		    A.set(s.index[j][k], j, s.value[j][k]);
+		}
+	    }
+	}
+	for (int j=system.cols+1; j <= augmented_cols; j++) {
+	    A.set(aux_row[j-1]-1, j-1, aux_coef[j-1]);
+	}
+
+	return true;
+    }
+
+
+    // give the tableau back to the pool for the next solve; the solution
+    // (x, Z and the basis) stays, but the system can no longer be
+    // re-optimized
+    public void release()
+    {
+	if (A != null) {
+	    A.release();
+	    A = null;
+	}
+    }
+
+
+    // size the augmented system and set up everything but the tableau
+    // itself: B, C, the slack, surplus and artificial columns, and the
+    // starting basis.
+    void setup_layout(boolean minimize)
     {
+	this.minimize = minimize;
+
+	// the columns are shifted by their lower bounds, x = lower + x',
+	// which moves a[i]*lower over to the right hand side of row i
+	double[] shift = new double[system.rows];
+	double[] col_j = new double[system.rows];
+	for (int j=1; j <= system.cols; j++) {
+	    if (system.lower[j-1] != 0.0) {
+		system.get_col(j, col_j);
+		for (int i=1; i <= system.rows; i++) {
+		    shift[i-1] = shift[i-1]+col_j[i-1]*system.lower[j-1];
+		}
+	    }
+	}
+
 	// make sure all values of b[i] are zero or positive,
 	// not convinced this step is necessary.
+	row_sign = new double[system.rows];
 	for (int i=1; i <= system.rows; i++) {
 	    // if b[i] is negative, reverse the signs of b[i] and a[i][*],
 	    // and reverse the direction of the inequality (if <= or >=).
-	    if (system.b[i-1] < 0) {
+	    row_sign[i-1] = 1.0;
+	    if (system.b[i-1]-shift[i-1] < 0) {
 		system.b[i-1] = -system.b[i-1];
+		shift[i-1]    = -shift[i-1];
+		row_sign[i-1] = -1.0;
 		if (system.e[i-1] == LinearProgram.Equality.LE) {
 		    system.e[i-1] = LinearProgram.Equality.GE;
 		} else if (system.e[i-1] == LinearProgram.Equality.GE) {
 		    system.e[i-1] = LinearProgram.Equality.LE;
 		}
-		for (int j=1; j <= system.cols; j++) {
-		    system.a[i-1][j-1] = -system.a[i-1][j-1];
-		}
+		system.negate_row(i);
 	    }
 	}
 
@@ -141,19 +1077,14 @@ public class Simplex {
 	}
 
 	// find a value for M (used only if bigM is true)
-	double M = 0;
-	if (bigM) {
+	M = 0;
+	if (bigM && method == Method.BIG_M) {
 	    double MaxA, MaxB, MaxC;
 
 	    // using abs of the value; original formulation used only the value
 	    MaxA = MaxB = MaxC = 1.0;
+	    MaxA = max(MaxA, system.max_abs_a());
 	    for (int i=1; i <= system.rows; i++) {
-		for (int j=1; j <= system.cols; j++) {
-		    if (Math.abs(system.a[i-1][j-1]) > MaxA) {
-			MaxA = Math.abs(system.a[i-1][j-1]);
-		    }
-		}
-
 		if (Math.abs(system.b[i-1]) > MaxB) {
 		    MaxB = Math.abs(system.b[i-1]);
 		}
@@ -165,13 +1096,15 @@ public class Simplex {
 	    }
 	    // M must be larger than the largest value in A, B or C
 	    M = max(MaxA, max(MaxB, MaxC)) * 2.0;
+	    if (0.0 < big_m) {
+		M = big_m;
+	    }
 	}
 
 	// size and allocate the augmented matrixes
 	augmented_rows = system.rows;
 	augmented_cols = system.cols + extras;
 
-	A = new double[augmented_rows][augmented_cols];
 	B = new double[augmented_rows];
 	C = new double[augmented_cols];
 	x = new double[system.cols];
@@ -179,10 +1112,28 @@ public class Simplex {
 	// allocate the tracking matrixes
 	basic_variables      = new int[system.rows];
 	artificial_variables = new int[system.cols+extras];
+	aux_row             = new int[system.cols+extras];
+	aux_coef            = new double[system.cols+extras];
+	range               = new double[system.cols+extras];
+	flipped             = new boolean[system.cols+extras];
+	bound_flips         = 0;
+
+	// only the columns of the system have upper bounds
+	bounded = false;
+	for (int j=1; j <= augmented_cols; j++) {
+	    range[j-1] = (j <= system.cols) ? system.upper[j-1]-system.lower[j-1] : Double.POSITIVE_INFINITY;
+	    bounded = bounded || range[j-1] != Double.POSITIVE_INFINITY;
+	}
+
+	// start with the Big M costs, or with the phase 1 costs
+	phase = (method == Method.TWO_PHASE) ? 1 : 0;
+	iterations        = 0;
+	phase1_iterations = 0;
+	double penalty = (phase == 1) ? 1.0 : M;
 
 	// initialize C, x and av
 	for (int j=1; j <= system.cols; j++) {
-	    C[j-1] = minimize ? system.c[j-1] : -system.c[j-1];
+	    C[j-1] = (phase == 1) ? 0.0 : minimize ? system.c[j-1] : -system.c[j-1];
 	    x[j-1] = 0.0;
 	    artificial_variables[j-1] = j;            // normal variable
 	}
@@ -191,24 +1142,20 @@ public class Simplex {
 	    C[j-1] = 0.0;
 	}
 
-	// set up the slack, artificial and surplus variables.
+	// set up the slack, artificial and surplus variables.  the rows
+	// with artificials are weighted by the penalty in w, and their
+	// sum taken out of the costs at the end
+	double[] w = new double[system.rows];
 	art_var_ct = 0;
 	int k = system.cols+1;
 	for (int i=1; i <= system.rows; i++) {
-	    // first approximation of the row contents
-	    for (int j=1; j <= system.cols; j++) {
-		A[i-1][j-1] = system.a[i-1][j-1];
-	    }
-	    for (int j=system.cols+1; j <= system.cols+extras; j++) {
-		A[i-1][j-1] = 0.0;
-	    }
-
-	    // modify the row contents (aux variables) based on the constraint type
+	    // add the aux variables based on the constraint type
 	    switch (system.e[i-1]) {
 	    case LE :
 		// Ax <= b 
 		// set up the slack variable
-		A[i-1][k-1] = 1.0;
+		aux_row[k-1]  = i;
+		aux_coef[k-1] = 1.0;
 		basic_variables[i-1] = k;
 		artificial_variables[k-1] = k;		// slack variable
 		k++;
@@ -216,10 +1163,9 @@ public class Simplex {
 	    case EQ :
 		// Ax == b
 		// set up the artificial variable
-		A[i-1][k-1] = 1.0;
-		for (int j=1; j <= system.cols; j++) {
-		    C[j-1] -= A[i-1][j-1]*M;
-		}
+		aux_row[k-1]  = i;
+		aux_coef[k-1] = 1.0;
+		w[i-1] = penalty;
 		basic_variables[i-1] = -k;
 		artificial_variables[k-1] = -k;
 		art_var_ct++;
@@ -227,24 +1173,61 @@ public class Simplex {
 		break;
 	    case GE :
 		// Ax >= b
-		// set up the artificial variable
-		A[i-1][k-1] = -1.0;
-		for (int j=1; j <= system.cols; j++) {
-		    C[j-1] -= A[i-1][j-1]*M;
-		}
-		C[k-1] = M;	// note: this is NOT duplicated in EQ
-		basic_variables[i-1] = -k;
+		// set up the surplus variable
+		aux_row[k-1]  = i;
+		aux_coef[k-1] = -1.0;
+		w[i-1] = penalty;
+		C[k-1] = penalty;	// note: this is NOT duplicated in EQ
 		artificial_variables[k-1] = k;
-		art_var_ct++;
 		k++;
 
-		// set up the surplus variable
-		A[i-1][k-1] = 1.0;
+		// set up the artificial variable
+		aux_row[k-1]  = i;
+		aux_coef[k-1] = 1.0;
+		basic_variables[i-1] = -k;
+		artificial_variables[k-1] = -k;
+		art_var_ct++;
 		k++;
 		break;
 	    }
 
-	    B[i-1] = system.b[i-1];
+	    B[i-1] = system.b[i-1]-shift[i-1];
+	}
+	system.sub_combination(kernels, C, w);
+
+	unit_col = new int[system.rows];
+	for (int i=1; i <= system.rows; i++) {
+	    unit_col[i-1] = Math.abs(basic_variables[i-1]);
+	}
+    }
+
+
+    // the cost of augmented column j, with the artificial variables
+    // carrying the Big M penalty, or in phase 1 only the artificials
+    double augmented_cost(int j)
+    {
+	if (phase == 1) {
+	    return (artificial_variables[j-1] < 0) ? 1.0 : 0.0;
+	} else if (j <= system.cols) {
+	    return minimize ? system.c[j-1] : -system.c[j-1];
+	} else if (artificial_variables[j-1] < 0) {
+	    return M;
+	}
+
+	return 0.0;
+    }
+
+
+    // copy augmented column j, as it was before any pivots, into col
+    void augmented_column(int j, double[] col)
+    {
+	if (j <= system.cols) {
+	    system.get_col(j, col);
+	} else {
+	    for (int i=1; i <= augmented_rows; i++) {
+		col[i-1] = 0.0;
+	    }
+	    col[aux_row[j-1]-1] = aux_coef[j-1];
 	}
     }
 
@@ -263,11 +1246,42 @@ public class Simplex {
 
 	State result = State.SOLUTION;
 	for (int pc=pivot_col(); pc != 0; pc=pivot_col()) {
+	    if (phase == 1 && art_var_ct == 0) {
+		// phase 1 is done once the artificials are out
+		break;
+	    }
 	    int pr = pivot_row(pc);
+	    int bound_row = bounded ? bound_test(pc, pr) : 0;
+	    if (bound_row < 0) {
+		// column pc reaches its upper bound before any basic
+		// variable blocks it, so it moves there without a pivot
+		System.out.println("bound flip="+pc+" "+pricing.name());
+		if (phase == 0 && 0 < art_var_ct) {
+		    phase1_iterations++;
+		}
+		iterations++;
+		bound_flips++;
+		check_progress(C[pc-1]*range[pc-1]);
+		complement_col(pc);
+		print_system();
+		System.out.println();
+		continue;
+	    } else if (0 < bound_row) {
+		// the basic variable of bound_row leaves at its upper bound
+		complement_row(bound_row);
+		col[bound_row-1] = -col[bound_row-1];
+		pr = bound_row;
+	    }
 
-	    System.out.println("pivot=("+pr+","+pc+")");
+	    System.out.println("pivot=("+pr+","+pc+") "+pricing.name());
 
 	    if (0 != pr) {
+		if (phase == 0 && 0 < art_var_ct) {
+		    phase1_iterations++;
+		}
+		iterations++;
+		check_progress(C[pc-1]*B[pr-1]/col[pr-1]);
+		update_pricing(pr, pc);
 		if ((result=lp_update(pr, pc)) != State.SOLUTION) {
 		    break;
 		}
@@ -285,34 +1299,99 @@ public class Simplex {
     }
 	
 	
-    private int pivot_col()
+    int pivot_col()
     {
-	int j = 0;                              // search across the columns
-	double e = 0.0;
-	for (int i=1; i <= augmented_cols; i++) {
-	    double f = C[i-1];
-	    if (f < e) {
-		j = i;
-		e = C[i-1];
-	    }
+	return pricing.select(this);
+    }
+
+
+    // may column j enter the basis?  artificial variables never re-enter.
+    // DantzigPricing applies the same test inside Kernels.argmin.
+    public boolean eligible(int j)
+    {
+	return 0 < artificial_variables[j-1];
+    }
+
+
+    // copy column j of the current tableau into alpha
+    public void column(int j, double[] alpha)
+    {
+	for (int i=1; i <= augmented_rows; i++) {
+	    alpha[i-1] = A.get(i-1, j-1);
 	}
+    }
 
-	return j;
+
+    // out = v'*A, the combination of the current tableau rows weighted by v
+    public void combine_rows(double[] v, double[] out)
+    {
+	for (int j=1; j <= augmented_cols; j++) {
+	    out[j-1] = 0.0;
+	}
+	for (int i=1; i <= augmented_rows; i++) {
+	    double vi = v[i-1];
+	    if (vi == 0.0) {
+		continue;
+	    }
+	    for (int j=1; j <= augmented_cols; j++) {
+		out[j-1] = out[j-1]+vi*A.get(i-1, j-1);
+	    }
+	}
     }
 
 	
     private int pivot_row(int pc)
     {
+	if (col == null || col.length != augmented_rows) {
+	    col = new double[augmented_rows];
+	}
+	column(pc, col);
+
+	return ratio_test(col);
+    }
+
+
+    // ratio test over the entering column alpha.  Entries no larger than
+    // pivot_tolerance are never pivots.  The Harris test makes two passes:
+    // the first finds the longest step that keeps every basic variable
+    // within primal_tolerance of feasibility, the second chooses, from the
+    // rows that block within that step, the one with the largest pivot.
+    // Otherwise the first row with the minimum ratio is chosen, or under
+    // Bland's rule the tied row with the lowest numbered basic variable.
+    int ratio_test(double[] alpha)
+    {
+	boolean bland = (saved != null);
+	double  slack = (harris && ! bland) ? primal_tolerance : 0.0;
+
+	double bound = Double.POSITIVE_INFINITY;
+	if (phase != 2) {
+	    bound = kernels.ratio_bound(B, alpha, augmented_rows, pivot_tolerance, slack);
+	} else {
+	    for (int i=1; i <= augmented_rows; i++) {
+		double g = pivot_entry(i, alpha);
+		if (g > pivot_tolerance) {
+		    double h = (pivot_rhs(i, alpha)+slack)/g;
+		    if (h < bound) {
+			bound = h;
+		    }
+		}
+	    }
+	}
+
 	int j = 0;                              // search down the rows
 	double e = 0.0;
 	for (int i=1; i <= augmented_rows; i++) {
-	    double f = B[i-1];
-	    double g = A[i-1][pc-1];
-	    if (g > 0.0) {
-		double h = f/g;
-		if (h < e || j == 0) {
+	    double g = pivot_entry(i, alpha);
+	    if (g > pivot_tolerance && pivot_rhs(i, alpha)/g <= bound) {
+		if (bland) {
+		    if (j == 0 || Math.abs(basic_variables[i-1]) < Math.abs(basic_variables[j-1])) {
+			j = i;
+		    }
+		} else if (! harris) {
+		    return i;
+		} else if (g > e) {
 		    j = i;
-		    e = h;
+		    e = g;
 		}
 	    }
 	}
@@ -320,6 +1399,116 @@ public class Simplex {
 	return j;
     }
 
+
+    // With upper bounds the step along column pc, entering with alpha in
+    // col, may end instead where a basic variable rises to its bound, or
+    // where pc reaches its own.  Returns -1 if pc reaches its bound
+    // first, i if the basic variable of row i does, or 0 if the ratio
+    // test row pr stands.
+    int bound_test(int pc, int pr)
+    {
+	double step = (pr == 0) ? Double.POSITIVE_INFINITY : pivot_rhs(pr, col)/pivot_entry(pr, col);
+
+	int j = 0;
+	for (int i=1; i <= augmented_rows; i++) {
+	    double g = -col[i-1];
+	    double r = range[Math.abs(basic_variables[i-1])-1];
+	    if (g > pivot_tolerance && r != Double.POSITIVE_INFINITY) {
+		double h = max(r-B[i-1], 0.0)/g;
+		if (h < step) {
+		    j = i;
+		    step = h;
+		}
+	    }
+	}
+
+	return (range[pc-1] != Double.POSITIVE_INFINITY && range[pc-1] <= step) ? -1 : j;
+    }
+
+
+    // column j, which is not basic, moves to its other bound: it is
+    // replaced by range minus itself, so its column and its reduced cost
+    // change sign and the right hand side takes up range times the column
+    void complement_col(int j)
+    {
+	double r = range[j-1];
+	for (int i=1; i <= augmented_rows; i++) {
+	    double a = A.get(i-1, j-1);
+	    if (a != 0.0) {
+		B[i-1] = B[i-1]-a*r;
+		A.set(i-1, j-1, -a);
+	    }
+	}
+	C[j-1] = -C[j-1];
+	flipped[j-1] = ! flipped[j-1];
+    }
+
+
+    // the basic variable of row i is replaced by range minus itself;
+    // the row changes sign, but for the basic column itself
+    void complement_row(int i)
+    {
+	int h = Math.abs(basic_variables[i-1]);
+	A.divide_row(kernels, i-1, -1.0);
+	A.set(i-1, h-1, 1.0);
+	B[i-1] = range[h-1]-B[i-1];
+	flipped[h-1] = ! flipped[h-1];
+    }
+
+
+    // an artificial left at zero in phase 2 must stay there, so it
+    // blocks a step in either direction
+    private double pivot_entry(int i, double[] alpha)
+    {
+	if (phase == 2 && basic_variables[i-1] < 0) {
+	    return Math.abs(alpha[i-1]);
+	}
+
+	return alpha[i-1];
+    }
+
+
+    private double pivot_rhs(int i, double[] alpha)
+    {
+	if (phase == 2 && basic_variables[i-1] < 0) {
+	    return 0.0;
+	}
+
+	return B[i-1];
+    }
+
+
+    // column pc is about to replace the basic variable of row pr; the
+    // rule set aside by a stall keeps its weights current as well
+    void update_pricing(int pr, int pc)
+    {
+	pricing.update(this, pr, pc);
+	if (saved != null) {
+	    saved.update(this, pr, pc);
+	}
+    }
+
+
+    // step is the change in the objective made by the coming pivot.
+    // After stall_limit pivots in a row with no improvement, switch to
+    // Bland's rule, and switch back once the objective moves again.
+    void check_progress(double step)
+    {
+	if (step < -primal_tolerance) {
+	    stalled = 0;
+	    if (saved != null) {
+		pricing = saved;
+		saved   = null;
+		System.out.println("progress, pricing="+pricing.name());
+	    }
+	} else if (++stalled >= stall_limit && saved == null) {
+	    stalls++;
+	    saved   = pricing;
+	    pricing = new BlandPricing();
+	    System.out.println("stalled "+stalled+" pivots, pricing="+pricing.name());
+	}
+    }
+
 	
     private State lp_update(int pr, int pc)
     {
@@ -328,33 +1517,72 @@ public class Simplex {
 	    return State.UNBOUNDED;
 	}
 
-	double pivot = A[pr-1][pc-1];
+	double pivot = A.get(pr-1, pc-1);
 
 	// update pivot row
-	for (int j=1; j <= augmented_cols; j++) {
-	    A[pr-1][j-1] = A[pr-1][j-1]/pivot;
-	}
+	A.divide_row(kernels, pr-1, pivot);
 	B[pr-1] = B[pr-1]/pivot;
 
 				    // update c vector
-	double aux = C[pc-1];
-	for (int j=1; j <= augmented_cols; j++) {
-	    C[j-1] = C[j-1]-(aux*A[pr-1][j-1]);
-	}
+	A.sub_row_from(kernels, C, pr-1, C[pc-1]);
 
 				    // update matrix a
-	for (int i=1; i <= augmented_rows; i++) {
-	    aux = A[i-1][pc-1];
+	if (executor != null && (long) augmented_rows*augmented_cols >= parallel_threshold) {
+	    executor.invoke(new Eliminate(pr, pc, 1, augmented_rows));
+	} else {
+	    eliminate(pr, pc, 1, augmented_rows);
+	}
+
+	update_basis(pr, pc);
+
+	return State.SOLUTION;
+    }
+
+
+    // eliminate column pc from rows lo..hi, other than the pivot row pr
+    private void eliminate(int pr, int pc, int lo, int hi)
+    {
+	for (int i=lo; i <= hi; i++) {
+	    double aux = A.get(i-1, pc-1);
 	    if (i == pr || aux == 0.0) {
 		continue;
 	    }
 
-	    for (int j=1; j <= augmented_cols; j++) {
-		A[i-1][j-1] = (A[i-1][j-1]-aux*A[pr-1][j-1]);
-	    }
+	    A.sub_row(kernels, i-1, pr-1, aux);
 	    B[i-1] = (B[i-1]-aux*B[pr-1]);
 	}
+    }
+
+
+    // the rows lo..hi split in halves until a block is small enough
+    private class Eliminate extends RecursiveAction {
+	static final long serialVersionUID = 1L;
+
+	int pr, pc, lo, hi;
+
+	Eliminate(int pr, int pc, int lo, int hi)
+	{
+	    this.pr = pr;
+	    this.pc = pc;
+	    this.lo = lo;
+	    this.hi = hi;
+	}
+
+	protected void compute()
+	{
+	    if (lo == hi || (long) (hi-lo+1)*augmented_cols <= parallel_grain) {
+		eliminate(pr, pc, lo, hi);
+	    } else {
+		int mid = (lo+hi)/2;
+		invokeAll(new Eliminate(pr, pc, lo, mid), new Eliminate(pr, pc, mid+1, hi));
+	    }
+	}
+    }
 
+
+    // column pc replaces the basic variable of row pr
+    void update_basis(int pr, int pc)
+    {
 	if (0 < art_var_ct && basic_variables[pr-1] < 0 && artificial_variables[pc-1] > 0) {
 	    art_var_ct--;
 	} else if (0 < art_var_ct && basic_variables[pr-1] > 0 && artificial_variables[pc-1] < 0) {
@@ -362,22 +1590,24 @@ public class Simplex {
 	}
 
 	basic_variables[pr-1] = artificial_variables[pc-1];
-
-	return State.SOLUTION;
     }
 
 	
     private void print_system()
     {
+	if (! verbose) {
+	    return;
+	}
+
 	for (int j=0; j < C.length; j++) {
 	    System.out.printf("%8.2f ", C[j]);
 	}
 	System.out.printf(" = %8.2f", Z);
 	System.out.println();
 
-	for (int i=0; i < A.length; i++) {
-	    for (int j=0; j < A[i].length; j++) {
-		System.out.printf("%8.2f ", A[i][j]);
+	for (int i=0; i < A.rows; i++) {
+	    for (int j=0; j < A.cols; j++) {
+		System.out.printf("%8.2f ", A.get(i, j));
 	    }
 	    System.out.printf(" = %8.2f", B[i]);
 	    System.out.println();
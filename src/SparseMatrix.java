@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.Arrays;
+
+/*
+ * SparseMatrix: a rows x cols matrix that keeps only its nonzeros, column
+ * by column.  Column j holds count[j] entries, with the row numbers in
+ * index[j][0..count[j]-1], in increasing order, and the values in
+ * value[j][0..count[j]-1].  Rows and columns are numbered from 0.
+ *
+ * Those arrays are the way to visit the nonzeros:
+ *     for (int j=0; j < s.cols; j++)
+ *         for (int k=0; k < s.count[j]; k++)
+ *             ... s.index[j][k], s.value[j][k] ...
+ * Setting a value in row order down each column appends to the column,
+ * so a matrix read a row at a time is built in time proportional to its
+ * nonzeros.
+ */
+public class SparseMatrix {
+    public int        rows  = 0;
+    public int        cols  = 0;
+    public int[]      count = null;
+    public int[][]    index = null;
+    public double[][] value = null;
+
+    public SparseMatrix(int rows, int cols)
+    {
+	this.rows = rows;
+	this.cols = cols;
+	count = new int[cols];
+	index = new int[cols][];
+	value = new double[cols][];
+	for (int j=0; j < cols; j++) {
+	    index[j] = new int[0];
+	    value[j] = new double[0];
+	}
+    }
+
+
+    // the position of row i in column j, or -(insertion point)-1
+    private int find(int i, int j)
+    {
+	return Arrays.binarySearch(index[j], 0, count[j], i);
+    }
+
+
+    public double get(int i, int j)
+    {
+	int k = find(i, j);
+
+	return (0 <= k) ? value[j][k] : 0.0;
+    }
+
+
+    // set entry (i,j), returning the old value; a zero is not stored
+    public double set(int i, int j, double v)
+    {
+	int k = find(i, j);
+	if (0 <= k) {
+	    double old = value[j][k];
+	    if (v != 0.0) {
+		value[j][k] = v;
+	    } else {
+		int n = count[j]-k-1;
+		System.arraycopy(index[j], k+1, index[j], k, n);
+		System.arraycopy(value[j], k+1, value[j], k, n);
+		count[j]--;
+	    }
+	    return old;
+	} else if (v != 0.0) {
+	    k = -k-1;
+	    if (count[j] == index[j].length) {
+		int n = Math.max(4, 2*count[j]);
+		index[j] = Arrays.copyOf(index[j], n);
+		value[j] = Arrays.copyOf(value[j], n);
+	    }
+	    int n = count[j]-k;
+	    System.arraycopy(index[j], k, index[j], k+1, n);
+	    System.arraycopy(value[j], k, value[j], k+1, n);
+	    index[j][k] = i;
+	    value[j][k] = v;
+	    count[j]++;
+	}
+
+	return 0.0;
+    }
+
+
+    public long nonzeros()
+    {
+	long n = 0;
+	for (int j=0; j < cols; j++) {
+	    n += count[j];
+	}
+
+	return n;
+    }
+
+
+    // out[0..cols-1] = row i
+    public void get_row(int i, double[] out)
+    {
+	for (int j=0; j < cols; j++) {
+	    out[j] = get(i, j);
+	}
+    }
+
+
+    // out[0..rows-1] = column j
+    public void get_col(int j, double[] out)
+    {
+	Arrays.fill(out, 0, rows, 0.0);
+	for (int k=0; k < count[j]; k++) {
+	    out[index[j][k]] = value[j][k];
+	}
+    }
+
+
+    // row i = -row i
+    public void negate_row(int i)
+    {
+	for (int j=0; j < cols; j++) {
+	    int k = find(i, j);
+	    if (0 <= k) {
+		value[j][k] = -value[j][k];
+	    }
+	}
+    }
+
+
+    // the largest magnitude of any entry
+    public double max_abs()
+    {
+	double e = 0.0;
+	for (int j=0; j < cols; j++) {
+	    for (int k=0; k < count[j]; k++) {
+		e = Math.max(e, Math.abs(value[j][k]));
+	    }
+	}
+
+	return e;
+    }
+
+
+    // y[j] = y[j] - v[i]*a[i][j], over the rows i in increasing order
+    public void sub_combination(double[] y, double[] v)
+    {
+	for (int j=0; j < cols; j++) {
+	    double s = y[j];
+	    for (int k=0; k < count[j]; k++) {
+		double vi = v[index[j][k]];
+		if (vi != 0.0) {
+		    s = s-vi*value[j][k];
+		}
+	    }
+	    y[j] = s;
+	}
+    }
+
+
+    // put an empty row in front of row i, renumbering those after it
+    public void insert_row(int i)
+    {
+	for (int j=0; j < cols; j++) {
+	    for (int k=count[j]-1; 0 <= k && i <= index[j][k]; k--) {
+		index[j][k]++;
+	    }
+	}
+	rows++;
+    }
+
+
+    // put an empty column in front of column j
+    public void insert_col(int j)
+    {
+	count = Arrays.copyOf(count, cols+1);
+	index = Arrays.copyOf(index, cols+1);
+	value = Arrays.copyOf(value, cols+1);
+	System.arraycopy(count, j, count, j+1, cols-j);
+	System.arraycopy(index, j, index, j+1, cols-j);
+	System.arraycopy(value, j, value, j+1, cols-j);
+	count[j] = 0;
+	index[j] = new int[0];
+	value[j] = new double[0];
+	cols++;
+    }
+
+
+    public SparseMatrix copy()
+    {
+	SparseMatrix s = new SparseMatrix(rows, cols);
+	for (int j=0; j < cols; j++) {
+	    s.count[j] = count[j];
+	    s.index[j] = Arrays.copyOf(index[j], count[j]);
+	    s.value[j] = Arrays.copyOf(value[j], count[j]);
+	}
+
+	return s;
+    }
+}
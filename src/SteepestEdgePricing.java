@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.Arrays;
+
+/*
+ * SteepestEdgePricing: projected steepest edge.  The column with the
+ * largest C[j]^2/g[j] enters, where g[j] is the squared length of the
+ * edge direction for column j projected onto the reference framework,
+ * the columns that are nonbasic at the start.  The weights are kept
+ * exact with the Goldfarb-Reid recurrence
+ *
+ *     g[j] = g[j] - 2*(a_rj/a_rq)*<n_j,n_q> + (a_rj/a_rq)^2*g[q]
+ *
+ * which needs the pivot row and one more combination of tableau rows,
+ * weighted by the pivot column over the reference rows.
+ */
+public class SteepestEdgePricing implements Pricing {
+    public double floor = 1.0e-6;
+
+    double[]  g         = null;
+    boolean[] reference = null;
+    double[]  row       = null;
+    double[]  dot       = null;
+    double[]  alpha     = null;
+    double[]  v         = null;
+
+    public String name()
+    {
+	return "steepest";
+    }
+
+
+    public void reset(Simplex s)
+    {
+	int n = s.augmented_cols;
+	g         = new double[n];
+	reference = new boolean[n];
+	Arrays.fill(g, 1.0);
+	Arrays.fill(reference, true);
+	for (int i=1; i <= s.augmented_rows; i++) {
+	    reference[Math.abs(s.basic_variables[i-1])-1] = false;
+	}
+    }
+
+
+    private void fit(Simplex s)
+    {
+	if (g == null || g.length != s.augmented_cols) {
+	    // columns added since the reset are basic slacks, outside
+	    // the reference framework
+	    int n = (g == null) ? 0 : g.length;
+	    g         = (g == null) ? new double[s.augmented_cols] : Arrays.copyOf(g, s.augmented_cols);
+	    reference = (reference == null) ? new boolean[s.augmented_cols] : Arrays.copyOf(reference, s.augmented_cols);
+	    for (int j=n; j < s.augmented_cols; j++) {
+		g[j] = 1.0;
+	    }
+	}
+    }
+
+
+    public int select(Simplex s)
+    {
+	fit(s);
+
+	int j = 0;
+	double best = 0.0;
+	for (int i=1; i <= s.augmented_cols; i++) {
+	    double f = s.C[i-1];
+	    if (f < -s.dual_tolerance && s.eligible(i)) {
+		double h = f*f/g[i-1];
+		if (h > best) {
+		    j = i;
+		    best = h;
+		}
+	    }
+	}
+
+	return j;
+    }
+
+
+    public void update(Simplex s, int pr, int pc)
+    {
+	fit(s);
+	int m = s.augmented_rows;
+	int n = s.augmented_cols;
+	if (row == null || row.length != n) {
+	    row = new double[n];
+	    dot = new double[n];
+	}
+	if (alpha == null || alpha.length != m) {
+	    alpha = new double[m];
+	    v     = new double[m];
+	}
+
+	// pivot row and pivot column
+	Arrays.fill(v, 0.0);
+	v[pr-1] = 1.0;
+	s.combine_rows(v, row);
+	s.column(pc, alpha);
+
+	// <n_j,n_q> over the reference framework
+	for (int i=1; i <= m; i++) {
+	    v[i-1] = reference[Math.abs(s.basic_variables[i-1])-1] ? alpha[i-1] : 0.0;
+	}
+	s.combine_rows(v, dot);
+
+	// the recurrence can lose accuracy, but no weight is less than
+	// its own unit component plus the component from column q
+	double aq = row[pc-1];
+	double gq = g[pc-1];
+	for (int j=1; j <= n; j++) {
+	    double r = row[j-1];
+	    if (j != pc && r != 0.0) {
+		double f = r/aq;
+		double h = g[j-1] - 2.0*f*dot[j-1] + f*f*gq;
+		double lower = (reference[j-1] ? 1.0 : 0.0) + (reference[pc-1] ? f*f : 0.0);
+		g[j-1] = Simplex.max(h, Simplex.max(lower, floor));
+	    }
+	}
+
+	int h = Math.abs(s.basic_variables[pr-1]);
+	g[h-1] = Simplex.max(gq/(aq*aq), reference[h-1] ? 1.0 : floor);
+    }
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * Tableau: a rows x cols matrix of doubles held row by row in a single
+ * array, row i starting at a[i*stride].  Indices start at 0, like the
+ * arrays they replace.  stride may be wider than cols, which leaves room
+ * for columns to be appended without moving the rows.
+ *
+ * The pivot loops work through divide_row(), sub_row() and sub_row_from(),
+ * which OffHeapTableau overrides to keep the entries outside the heap.
+ *
+ * The arrays come from a pool shared by all tableaus.  release() hands
+ * the array back, and the next acquire() of the same or a smaller size
+ * uses it again, so repeated solves do not allocate a new tableau each
+ * time.  A released tableau must not be used.
+ *
+ * One array holds at most max_entries doubles, so a larger tableau has
+ * to be kept off the heap, in an OffHeapTableau.
+ */
+public class Tableau {
+    public int      rows   = 0;
+    public int      cols   = 0;
+    public int      stride = 0;
+    public double[] a      = null;
+
+    // the most entries a Java array can hold
+    public static final long max_entries = Integer.MAX_VALUE-8;
+
+    // at most pool_limit arrays are kept for reuse
+    public static int pool_limit = 8;
+    private static final ArrayList<double[]> pool = new ArrayList<double[]>();
+
+    Tableau(int rows, int cols, int stride, double[] a)
+    {
+	this.rows   = rows;
+	this.cols   = cols;
+	this.stride = stride;
+	this.a      = a;
+    }
+
+
+    // a rows x cols tableau of zeros, or null if it does not fit in an
+    // array
+    public static Tableau acquire(int rows, int cols)
+    {
+	if (max_entries < (long) rows*cols) {
+	    System.err.println("No Solution: a "+rows+" x "+cols+" tableau is too large for the heap, use -off-heap");
+	    return null;
+	}
+	double[] a = take(rows*cols, rows*cols);
+	Arrays.fill(a, 0, rows*cols, 0.0);
+
+	return new Tableau(rows, cols, cols, a);
+    }
+
+
+    // whether the tableau can grow to rows x cols
+    public boolean fits(int rows, int cols)
+    {
+	return (long) rows*cols <= max_entries;
+    }
+
+
+    // hand the array back to the pool
+    public void release()
+    {
+	if (a != null) {
+	    give(a);
+	    a = null;
+	}
+    }
+
+
+    public double get(int i, int j)
+    {
+	return a[i*stride+j];
+    }
+
+
+    public void set(int i, int j, double v)
+    {
+	a[i*stride+j] = v;
+    }
+
+
+    // the position of row i in a
+    public int row(int i)
+    {
+	return i*stride;
+    }
+
+
+    // row i = v[0..n-1], followed by zeros
+    public void set_row(int i, double[] v, int n)
+    {
+	System.arraycopy(v, 0, a, i*stride, n);
+	Arrays.fill(a, i*stride+n, i*stride+cols, 0.0);
+    }
+
+
+    // row i = row i/s
+    public void divide_row(Kernels k, int i, double s)
+    {
+	k.divide(a, i*stride, cols, s);
+    }
+
+
+    // row i = row i - f*row r
+    public void sub_row(Kernels k, int i, int r, double f)
+    {
+	k.sub_scaled(a, i*stride, a, r*stride, cols, f);
+    }
+
+
+    // y = y - f*row r, over the first cols entries of y
+    public void sub_row_from(Kernels k, double[] y, int r, double f)
+    {
+	k.sub_scaled(y, 0, a, r*stride, cols, f);
+    }
+
+
+    // grow or shrink to rows x cols, keeping the entries that remain
+    // and filling the new ones with zeros; see fits()
+    public void resize(int rows, int cols)
+    {
+	int m = Math.min(rows, this.rows);
+	int n = Math.min(cols, this.cols);
+
+	if (! fits(rows, cols)) {
+	    throw new IllegalArgumentException("a "+rows+" x "+cols+" tableau is too large for the heap, use -off-heap");
+	} else if (cols <= stride && (long) rows*stride <= a.length) {
+	    for (int i=0; i < m; i++) {
+		Arrays.fill(a, i*stride+n, i*stride+stride, 0.0);
+	    }
+	    Arrays.fill(a, m*stride, rows*stride, 0.0);
+	} else {
+	    // leave some room, since one new column or row tends to
+	    // be followed by more
+	    int s = (cols <= stride) ? stride : Math.max(cols, stride+stride/2);
+	    if (max_entries < (long) rows*s) {
+		s = cols;
+	    }
+	    double[] b = take(rows*s, (int) Math.min(max_entries, (long) (rows+rows/2)*s));
+	    Arrays.fill(b, 0, rows*s, 0.0);
+	    for (int i=0; i < m; i++) {
+		System.arraycopy(a, i*stride, b, i*s, n);
+	    }
+	    give(a);
+	    a      = b;
+	    stride = s;
+	}
+
+	this.rows = rows;
+	this.cols = cols;
+    }
+
+
+    // k columns of zeros ahead of column j, the columns from j on
+    // moving k places to the right
+    public void insert_cols(int j, int k)
+    {
+	int n = cols;
+	resize(rows, cols+k);
+	for (int i=0; i < rows; i++) {
+	    for (int h=n-1; j <= h; h--) {
+		set(i, h+k, get(i, h));
+	    }
+	    for (int h=j; h < j+k; h++) {
+		set(i, h, 0.0);
+	    }
+	}
+    }
+
+
+    // the smallest pooled array holding at least need entries, or else
+    // a new array of size entries
+    private static synchronized double[] take(int need, int size)
+    {
+	int k = -1;
+	for (int i=0; i < pool.size(); i++) {
+	    int n = pool.get(i).length;
+	    if (need <= n && (k < 0 || n < pool.get(k).length)) {
+		k = i;
+	    }
+	}
+	if (k < 0) {
+	    return new double[Math.max(need, size)];
+	}
+
+	return pool.remove(k);
+    }
+
+
+    // keep the array for reuse, dropping the smallest one when full
+    private static synchronized void give(double[] a)
+    {
+	pool.add(a);
+	if (pool_limit < pool.size()) {
+	    int k = 0;
+	    for (int i=1; i < pool.size(); i++) {
+		if (pool.get(i).length < pool.get(k).length) {
+		    k = i;
+		}
+	    }
+	    pool.remove(k);
+	}
+    }
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * VectorKernels: the pivot loops on the incubating Vector API, in the
+ * preferred vector width of the machine, with the leftover elements
+ * done one at a time.  Each element gets the same arithmetic as in
+ * ScalarKernels (no fused multiply-add), so the results are the same.
+ *
+ * Build it apart from the rest, since it needs the incubator module:
+ *     javac --add-modules jdk.incubator.vector -cp out -d out src/vector/VectorKernels.java
+ * and run with --add-modules jdk.incubator.vector to have it used.
+ */
+public class VectorKernels extends Kernels {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+
+    // for the rare cases the vector scans cannot settle
+    private final ScalarKernels scalar = new ScalarKernels();
+
+    public String name()
+    {
+	return "vector";
+    }
+
+
+    public void divide(double[] x, int xo, int n, double s)
+    {
+	int j = 0;
+	for (int lim=D.loopBound(n); j < lim; j += D.length()) {
+	    DoubleVector.fromArray(D, x, xo+j).div(s).intoArray(x, xo+j);
+	}
+	for ( ; j < n; j++) {
+	    x[xo+j] = x[xo+j]/s;
+	}
+    }
+
+
+    public void sub_scaled(double[] y, int yo, double[] x, int xo, int n, double a)
+    {
+	int j = 0;
+	for (int lim=D.loopBound(n); j < lim; j += D.length()) {
+	    DoubleVector vy = DoubleVector.fromArray(D, y, yo+j);
+	    DoubleVector vx = DoubleVector.fromArray(D, x, xo+j);
+	    vy.sub(vx.mul(a)).intoArray(y, yo+j);
+	}
+	for ( ; j < n; j++) {
+	    y[yo+j] = y[yo+j]-a*x[xo+j];
+	}
+    }
+
+
+    public int argmin(double[] v, int[] keep, int off, int n, double bound)
+    {
+	// the smallest value of all, then the first eligible place it
+	// occurs; when only ineligible columns hold it, scan one by one
+	DoubleVector least = DoubleVector.broadcast(D, Double.POSITIVE_INFINITY);
+	int i = 0;
+	for (int lim=D.loopBound(n); i < lim; i += D.length()) {
+	    DoubleVector f = DoubleVector.fromArray(D, v, off+i);
+	    least = least.blend(f, f.compare(VectorOperators.LT, least));
+	}
+	double e = least.reduceLanes(VectorOperators.MIN);
+	for ( ; i < n; i++) {
+	    e = Math.min(e, v[off+i]);
+	}
+
+	if (Double.isNaN(e)) {
+	    return scalar.argmin(v, keep, off, n, bound);
+	} else if (! (e < bound)) {
+	    return -1;
+	}
+	for (i=off; i < off+n; i++) {
+	    if (v[i] == e && 0 < keep[i]) {
+		return i;
+	    }
+	}
+
+	return scalar.argmin(v, keep, off, n, bound);
+    }
+
+
+    public double ratio_bound(double[] b, double[] alpha, int n, double tol, double slack)
+    {
+	DoubleVector inf   = DoubleVector.broadcast(D, Double.POSITIVE_INFINITY);
+	DoubleVector least = inf;
+	int i = 0;
+	for (int lim=D.loopBound(n); i < lim; i += D.length()) {
+	    DoubleVector g = DoubleVector.fromArray(D, alpha, i);
+	    DoubleVector h = DoubleVector.fromArray(D, b, i).add(slack).div(g);
+	    least = least.blend(h, g.compare(VectorOperators.GT, tol).and(h.compare(VectorOperators.LT, least)));
+	}
+	double bound = least.reduceLanes(VectorOperators.MIN);
+	if (Double.isNaN(bound)) {
+	    return scalar.ratio_bound(b, alpha, n, tol, slack);
+	}
+	for ( ; i < n; i++) {
+	    double g = alpha[i];
+	    if (g > tol) {
+		double h = (b[i]+slack)/g;
+		if (h < bound) {
+		    bound = h;
+		}
+	    }
+	}
+
+	return bound;
+    }
+}
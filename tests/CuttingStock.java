@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 1988,2019 Douglas M. Pase                                     *
+ * All rights reserved.                                                        *
+ * Redistribution and use in source and binary forms, with or without          *
+ * modification, are permitted provided that the following conditions          *
+ * are met:                                                                    *
+ * o       Redistributions of source code must retain the above copyright      *
+ *         notice, this list of conditions and the following disclaimer.       *
+ * o       Redistributions in binary form must reproduce the above copyright   *
+ *         notice, this list of conditions and the following disclaimer in     *
+ *         the documentation and/or other materials provided with the          *
+ *         distribution.                                                       *
+ * o       Neither the name of the copyright holder nor the names of its       *
+ *         contributors may be used to endorse or promote products derived     *
+ *         from this software without specific prior written permission.       *
+ *                                                                             *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" *
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE   *
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE  *
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE   *
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR         *
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF        *
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS    *
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN     *
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)     *
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF      *
+ * THE POSSIBILITY OF SUCH DAMAGE.                                             *
+ *******************************************************************************/
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * CuttingStock: an example of ColumnGeneration.  It reads the cutting
+ * stock master of tests/cutting-stock.csv, whose rows are the pieces
+ * wanted, and prices patterns with a knapsack: the pattern that packs
+ * the most dual value into one roll prices out if that value is more
+ * than the roll costs.  It prints the answer and checks it against the
+ * known optimum.
+ *
+ *     javac -cp out -d out tests/CuttingStock.java
+ *     java -cp out CuttingStock tests/cutting-stock.csv
+ */
+public class CuttingStock implements ColumnGeneration.Pricer {
+    public static final double answer = 452.25;
+
+    public int   roll  = 100;
+    public int[] width = {45, 36, 31, 14};
+
+    // the pattern of most dual value, by a knapsack over the widths
+    public List<ColumnGeneration.Column> price(double[] dual)
+    {
+	double[] best = new double[roll+1];     // most value in a length
+	int[]    last = new int[roll+1];        // the piece cut last, from 1
+	for (int l=1; l <= roll; l++) {
+	    best[l] = best[l-1];
+	    for (int i=1; i <= width.length; i++) {
+		if (width[i-1] <= l && best[l] < best[l-width[i-1]]+dual[i-1]) {
+		    best[l] = best[l-width[i-1]]+dual[i-1];
+		    last[l] = i;
+		}
+	    }
+	}
+
+	List<ColumnGeneration.Column> r = new ArrayList<ColumnGeneration.Column>();
+	double[] a = new double[width.length];
+	for (int l=roll; 0 < l; ) {
+	    if (last[l] == 0) {
+		l -= 1;
+	    } else {
+		a[last[l]-1] += 1;
+		l -= width[last[l]-1];
+	    }
+	}
+	String label = "";
+	for (int i=1; i <= width.length; i++) {
+	    if (0 < a[i-1]) {
+		label = label+((label.length() == 0) ? "" : " + ")+(int) a[i-1]+" x "+width[i-1];
+	    }
+	}
+	if (1.0 < best[roll]) {
+	    r.add(new ColumnGeneration.Column(a, 1.0, label));
+	}
+
+	return r;
+    }
+
+
+    public static void main(String[] args)
+    {
+	File file = new File((0 < args.length) ? args[0] : "tests/cutting-stock.csv");
+	LinearProgram lp = LinearProgram.read(file);
+	Simplex simplex = new Simplex(lp);
+	simplex.verbose = false;
+
+	ColumnGeneration generation = new ColumnGeneration(simplex, new CuttingStock());
+	Simplex.State soln = generation.solve(lp.minimize);
+	if (soln != Simplex.State.SOLUTION) {
+	    System.out.println("CuttingStock: "+soln+", expected Z = "+answer);
+	    System.exit(1);
+	}
+
+	System.out.println("Z = "+simplex.Z+", expected "+answer);
+	for (int j=1; j <= lp.cols; j++) {
+	    if (0.0 < simplex.x[j-1]) {
+		System.out.println("    "+simplex.x[j-1]+" x "+lp.col_labels[j-1]);
+	    }
+	}
+	if (1.0e-6*answer < Math.abs(simplex.Z-answer)) {
+	    System.exit(1);
+	}
+    }
+}